@@ -0,0 +1,126 @@
+package com.vdurmont.semver4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only {@link CharSequence} views over a part of an array or of a buffer, so that versions can be read from large
+ * buffers without creating a String per candidate. The bytes are read as ASCII (ISO-8859-1, one char per byte).
+ */
+class CharSequences {
+    private CharSequences() {
+    }
+
+    static CharSequence of(char[] chars, int offset, int length) {
+        checkBounds(chars.length, offset, length);
+        return new CharArraySequence(chars, offset, length);
+    }
+
+    static CharSequence of(byte[] bytes, int offset, int length) {
+        checkBounds(bytes.length, offset, length);
+        return new ByteArraySequence(bytes, offset, length);
+    }
+
+    static CharSequence of(ByteBuffer buffer, int offset, int length) {
+        checkBounds(buffer.limit(), offset, length);
+        return new ByteBufferSequence(buffer, offset, length);
+    }
+
+    private static void checkBounds(int size, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > size - length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length + ", size=" + size);
+        }
+    }
+
+    private static class CharArraySequence implements CharSequence {
+        private final char[] chars;
+        private final int offset;
+        private final int length;
+
+        private CharArraySequence(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override public int length() {
+            return this.length;
+        }
+
+        @Override public char charAt(int index) {
+            return this.chars[this.offset + index];
+        }
+
+        @Override public CharSequence subSequence(int start, int end) {
+            return CharSequences.of(this.chars, this.offset + start, end - start);
+        }
+
+        @Override public String toString() {
+            return new String(this.chars, this.offset, this.length);
+        }
+    }
+
+    private static class ByteArraySequence implements CharSequence {
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+
+        private ByteArraySequence(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override public int length() {
+            return this.length;
+        }
+
+        @Override public char charAt(int index) {
+            return (char) (this.bytes[this.offset + index] & 0xFF);
+        }
+
+        @Override public CharSequence subSequence(int start, int end) {
+            return CharSequences.of(this.bytes, this.offset + start, end - start);
+        }
+
+        @Override public String toString() {
+            return new String(this.bytes, this.offset, this.length, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static class ByteBufferSequence implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        private ByteBufferSequence(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override public int length() {
+            return this.length;
+        }
+
+        @Override public char charAt(int index) {
+            // Absolute reads, the position of the buffer is never changed
+            return (char) (this.buffer.get(this.offset + index) & 0xFF);
+        }
+
+        @Override public CharSequence subSequence(int start, int end) {
+            return CharSequences.of(this.buffer, this.offset + start, end - start);
+        }
+
+        @Override public String toString() {
+            if (this.buffer.hasArray()) {
+                return new String(this.buffer.array(), this.buffer.arrayOffset() + this.offset, this.length, StandardCharsets.ISO_8859_1);
+            }
+            char[] chars = new char[this.length];
+            for (int i = 0; i < this.length; i++) {
+                chars[i] = this.charAt(i);
+            }
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A requirement compiled into sorted and disjoint intervals of versions (see {@link Requirement#compile()}).
+ *
+ * It gives exactly the same answers as {@link Requirement#isSatisfiedBy(Semver)}, but checking a version is a binary
+ * search over the bounds of the intervals, whatever the way the requirement was written.
+ *
+ * The answer of a requirement does not only depend on the order of the versions:
+ * - the missing parts of the versions of the requirement are wildcards for the NPM versions only ("1.2" is
+ *   "[1.2.0-0,1.3.0-0)" for them, and "[1.2.0,1.2.0]" for the other versions)
+ * - a version with a suffix only satisfies a group of ranges if one of them has a suffix and the same major, minor and
+ *   patch parts (including the missing ones)
+ * So there is a set of intervals per kind of version: NPM or not, and release or pre-release with a patch, without a
+ * patch or without a minor part.
+ */
+public class CompiledRequirement {
+    private static final int RELEASE = 0;
+    private static final int PRE_RELEASE = 1;
+    private static final int PRE_RELEASE_WITHOUT_PATCH = 2;
+    private static final int PRE_RELEASE_WITHOUT_MINOR = 3;
+    private static final int SHAPE_COUNT = 4;
+    private static final int NPM = SHAPE_COUNT;
+    static final int SET_COUNT = 2 * SHAPE_COUNT;
+
+    private final Requirement requirement;
+    private final SemverType type;
+    private final VersionIntervalSet[] sets;
+    // All the versions that satisfy the requirement are in these intervals, whatever their kind
+    private final VersionIntervalSet candidates;
+
+    private CompiledRequirement(Requirement requirement, SemverType type, VersionIntervalSet[] sets) {
+        this.requirement = requirement;
+        this.type = type;
+        this.sets = sets;
+        VersionIntervalSet candidates = VersionIntervalSet.EMPTY;
+        for (VersionIntervalSet set : sets) {
+            candidates = candidates.union(set);
+        }
+        this.candidates = candidates;
+    }
+
+    static CompiledRequirement compile(Requirement requirement) {
+        VersionIntervalSet[] sets = new VersionIntervalSet[SET_COUNT];
+        for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+            sets[shape] = share(sets, shape, compile(requirement, false, shape));
+        }
+        boolean wildcards = hasWildcardBounds(requirement);
+        for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+            // Without wildcards, the NPM versions are compared as the other ones
+            sets[NPM + shape] = wildcards ? share(sets, NPM + shape, compile(requirement, true, shape)) : sets[shape];
+        }
+        // Same version type as Requirement.isSatisfiedBy(String)
+        SemverType type = requirement.range != null ? requirement.range.version.getType() : SemverType.STRICT;
+        return new CompiledRequirement(requirement, type, sets);
+    }
+
+    /**
+     * @return an equal set that was already computed, or the set itself
+     */
+    private static VersionIntervalSet share(VersionIntervalSet[] sets, int count, VersionIntervalSet set) {
+        for (int i = 0; i < count; i++) {
+            if (sets[i].equals(set)) {
+                return sets[i];
+            }
+        }
+        return set;
+    }
+
+    private static VersionIntervalSet compile(Requirement requirement, boolean npm, int shape) {
+        if (requirement.range != null) {
+            return compile(requirement.range, npm);
+        }
+        if (requirement.op == Requirement.RequirementOperator.AND) {
+            if (requirement.andRangeCount > 0) {
+                return compileRanges(requirement.andRanges(), npm, shape);
+            }
+            // Same as the tree: each side is evaluated on its own
+            return compile(requirement.req1, npm, shape).intersection(compile(requirement.req2, npm, shape));
+        }
+        if (requirement.op == Requirement.RequirementOperator.OR) {
+            return compile(requirement.req1, npm, shape).union(compile(requirement.req2, npm, shape));
+        }
+        throw new SemverException("Invalid requirement");
+    }
+
+    private static VersionIntervalSet compileRanges(Range[] ranges, boolean npm, int shape) {
+        VersionIntervalSet set = VersionIntervalSet.ALL;
+        for (Range range : ranges) {
+            set = set.intersection(compile(range, npm));
+        }
+        if (shape == RELEASE || set.isEmpty()) {
+            return set;
+        }
+        // The pre-releases are only allowed for the main parts of the ranges that have a suffix
+        List<VersionInterval> allowed = new ArrayList<VersionInterval>();
+        for (Range range : ranges) {
+            Semver version = range.version;
+            if (version != null && version.hasSuffix() && shape(version) == shape) {
+                int minor = version.hasMinor() ? version.getMinor() : 0;
+                int patch = version.hasPatch() ? version.getPatch() : 0;
+                allowed.add(new VersionInterval(
+                        Semver.createBound(version.getMajor(), minor, patch, true), true,
+                        Semver.createBound(version.getMajor(), minor, patch, false), false));
+            }
+        }
+        return set.intersection(VersionIntervalSet.union(allowed));
+    }
+
+    private static VersionIntervalSet compile(Range range, boolean npm) {
+        Semver version = range.version;
+        if (!npm || (version.hasMinor() && version.hasPatch())) {
+            // The missing parts are compared as zeros
+            Semver bound = version.hasMinor() && version.hasPatch() ? version : version.withMissingPartsAsZero(SemverType.STRICT);
+            switch (range.op) {
+                case EQ:
+                    return VersionIntervalSet.of(new VersionInterval(bound, true, bound, true));
+                case LT:
+                    return VersionIntervalSet.of(VersionInterval.atMost(bound, false));
+                case LTE:
+                    return VersionIntervalSet.of(VersionInterval.atMost(bound, true));
+                case GT:
+                    return VersionIntervalSet.of(VersionInterval.atLeast(bound, false));
+                case GTE:
+                    return VersionIntervalSet.of(VersionInterval.atLeast(bound, true));
+            }
+        } else {
+            // The missing parts are wildcards: the range is about all the versions from the lowest pre-release with
+            // the same major (and minor) part, to the lowest pre-release of the next one (none if it overflows)
+            int major = version.getMajor();
+            int minor = version.hasMinor() ? version.getMinor() : 0;
+            Semver lower = Semver.createBound(major, minor, 0, true);
+            Semver upper = null;
+            if (version.hasMinor() && minor < Integer.MAX_VALUE) {
+                upper = Semver.createBound(major, minor + 1, 0, true);
+            } else if (major < Integer.MAX_VALUE) {
+                upper = Semver.createBound(major + 1, 0, 0, true);
+            }
+            switch (range.op) {
+                case EQ:
+                    return VersionIntervalSet.of(new VersionInterval(lower, true, upper, false));
+                case LT:
+                    return VersionIntervalSet.of(VersionInterval.atMost(lower, false));
+                case LTE:
+                    return upper == null ? VersionIntervalSet.ALL : VersionIntervalSet.of(VersionInterval.atMost(upper, false));
+                case GT:
+                    return upper == null ? VersionIntervalSet.EMPTY : VersionIntervalSet.of(VersionInterval.atLeast(upper, true));
+                case GTE:
+                    return VersionIntervalSet.of(VersionInterval.atLeast(lower, true));
+            }
+        }
+        throw new RuntimeException("Code error. Unknown RangeOperator: " + range.op); // Should never happen
+    }
+
+    private static boolean hasWildcardBounds(Requirement requirement) {
+        if (requirement.range != null) {
+            return !requirement.range.version.hasMinor() || !requirement.range.version.hasPatch();
+        }
+        return (requirement.req1 != null && hasWildcardBounds(requirement.req1))
+                || (requirement.req2 != null && hasWildcardBounds(requirement.req2));
+    }
+
+    private static int shape(Semver version) {
+        if (!version.hasSuffix()) {
+            return RELEASE;
+        } else if (!version.hasMinor()) {
+            return PRE_RELEASE_WITHOUT_MINOR;
+        } else if (!version.hasPatch()) {
+            return PRE_RELEASE_WITHOUT_PATCH;
+        }
+        return PRE_RELEASE;
+    }
+
+    /**
+     * @see #isSatisfiedBy(Semver)
+     *
+     * @param version the version that will be checked
+     *
+     * @return true if the version satisfies the requirement
+     */
+    public boolean isSatisfiedBy(String version) {
+        return this.isSatisfiedBy(new Semver(version, this.type));
+    }
+
+    /**
+     * Checks if the requirement is satisfied by a version.
+     *
+     * @param version the version that will be checked
+     *
+     * @return true if the version satisfies the requirement
+     */
+    public boolean isSatisfiedBy(Semver version) {
+        return this.sets[indexOf(version)].contains(version);
+    }
+
+    /**
+     * @return the index of the set of intervals that contains the version if it satisfies the requirement
+     */
+    static int indexOf(Semver version) {
+        int index = shape(version);
+        if (version.getType() == SemverType.NPM) {
+            index += NPM;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the greatest version that satisfies the requirement.
+     *
+     * @param versions the versions, in any order
+     *
+     * @return the greatest version that satisfies the requirement, or null if there is none
+     */
+    public Semver maxSatisfying(Iterable<Semver> versions) {
+        Semver max = null;
+        for (Semver version : versions) {
+            if ((max == null || version.compareTo(max) >= 0) && this.isSatisfiedBy(version)) {
+                max = version;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the lowest version that satisfies the requirement.
+     *
+     * @param versions the versions, in any order
+     *
+     * @return the lowest version that satisfies the requirement, or null if there is none
+     */
+    public Semver minSatisfying(Iterable<Semver> versions) {
+        Semver min = null;
+        for (Semver version : versions) {
+            if ((min == null || version.compareTo(min) < 0) && this.isSatisfiedBy(version)) {
+                min = version;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Returns the greatest version that satisfies the requirement, with a binary search from the upper bound of the
+     * requirement. Only the versions between the bounds are checked, from the greatest one, so this is O(log n) unless
+     * many of them are pre-releases that are not allowed.
+     *
+     * @param sortedVersions the versions, sorted in ascending order (as by {@link java.util.Collections#sort(List)}),
+     *                       in a list with fast random access
+     *
+     * @return the greatest version that satisfies the requirement, or null if there is none
+     */
+    public Semver maxSatisfyingSorted(List<Semver> sortedVersions) {
+        int end = sortedVersions.size();
+        for (int i = this.candidates.size() - 1; i >= 0 && end > 0; i--) {
+            VersionInterval interval = this.candidates.get(i);
+            int index = firstGreater(sortedVersions, 0, end, interval) - 1;
+            for (; index >= 0 && !interval.isAbove(sortedVersions.get(index)); index--) {
+                Semver version = sortedVersions.get(index);
+                if (this.isSatisfiedBy(version)) {
+                    return version;
+                }
+            }
+            end = index + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the lowest version that satisfies the requirement, with a binary search from the lower bound of the
+     * requirement.
+     *
+     * @see #maxSatisfyingSorted(List)
+     *
+     * @param sortedVersions the versions, sorted in ascending order (as by {@link java.util.Collections#sort(List)}),
+     *                       in a list with fast random access
+     *
+     * @return the lowest version that satisfies the requirement, or null if there is none
+     */
+    public Semver minSatisfyingSorted(List<Semver> sortedVersions) {
+        int start = 0;
+        int size = sortedVersions.size();
+        for (int i = 0; i < this.candidates.size() && start < size; i++) {
+            VersionInterval interval = this.candidates.get(i);
+            int index = firstNotLower(sortedVersions, start, size, interval);
+            for (; index < size && !interval.isBelow(sortedVersions.get(index)); index++) {
+                Semver version = sortedVersions.get(index);
+                if (this.isSatisfiedBy(version)) {
+                    return version;
+                }
+            }
+            start = index;
+        }
+        return null;
+    }
+
+    /**
+     * Returns all the versions that satisfy the requirement, with a binary search from the lower bound of each
+     * interval of the requirement. Only the versions of the intervals are checked.
+     *
+     * @see #maxSatisfyingSorted(List)
+     *
+     * @param sortedVersions the versions, sorted in ascending order (as by {@link java.util.Collections#sort(List)}),
+     *                       in a list with fast random access
+     *
+     * @return the versions that satisfy the requirement, in ascending order
+     */
+    public List<Semver> allSatisfyingSorted(List<Semver> sortedVersions) {
+        List<Semver> result = new ArrayList<Semver>();
+        int start = 0;
+        int size = sortedVersions.size();
+        for (int i = 0; i < this.candidates.size() && start < size; i++) {
+            VersionInterval interval = this.candidates.get(i);
+            int index = firstNotLower(sortedVersions, start, size, interval);
+            for (; index < size && !interval.isBelow(sortedVersions.get(index)); index++) {
+                Semver version = sortedVersions.get(index);
+                if (this.isSatisfiedBy(version)) {
+                    result.add(version);
+                }
+            }
+            start = index;
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the first version greater than all the versions of the interval, or the end
+     */
+    private static int firstGreater(List<Semver> sortedVersions, int start, int end, VersionInterval interval) {
+        int low = start;
+        int high = end - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (interval.isBelow(sortedVersions.get(middle))) {
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first version that is not lower than all the versions of the interval, or the end
+     */
+    private static int firstNotLower(List<Semver> sortedVersions, int start, int end, VersionInterval interval) {
+        int low = start;
+        int high = end - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (interval.isAbove(sortedVersions.get(middle))) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Checks if a version satisfies both requirements. The answer is computed from the intervals of the requirements
+     * and from the versions that can exist in them (for example, no release is between 1.2.3-alpha and 1.2.3-beta),
+     * for each kind of version, so it takes the pre-releases into account without checking any version.
+     *
+     * @param other the other requirement
+     *
+     * @return true if at least one version satisfies both requirements
+     */
+    public boolean intersects(CompiledRequirement other) {
+        for (int i = 0; i < this.sets.length; i++) {
+            if (!this.isSameAsRelease(other, i) && intersects(this.sets[i], other.sets[i], i % SHAPE_COUNT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if all the versions that satisfy the requirement also satisfy another one, without checking any version.
+     *
+     * @see #intersects(CompiledRequirement)
+     *
+     * @param other the other requirement
+     *
+     * @return true if the requirement implies the other one
+     */
+    public boolean isSubsetOf(CompiledRequirement other) {
+        for (int i = 0; i < this.sets.length; i++) {
+            VersionIntervalSet set = this.sets[i];
+            VersionIntervalSet otherSet = other.sets[i];
+            if (set.isEmpty() || set == otherSet || otherSet == VersionIntervalSet.ALL || this.isSameAsRelease(other, i)) {
+                continue;
+            }
+            if (intersects(set, otherSet.complement(), i % SHAPE_COUNT)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the NPM versions of a kind are compared to both requirements as the other versions of this kind,
+     * which were already checked
+     */
+    private boolean isSameAsRelease(CompiledRequirement other, int index) {
+        return index >= NPM && this.sets[index] == this.sets[index - NPM] && other.sets[index] == other.sets[index - NPM];
+    }
+
+    /**
+     * @param requirement the intersection of the requirements of the compiled ones (their sides are evaluated on
+     *                    their own)
+     * @param other the other compiled requirement
+     *
+     * @return the compiled requirement
+     */
+    CompiledRequirement intersection(Requirement requirement, CompiledRequirement other) {
+        VersionIntervalSet[] sets = new VersionIntervalSet[this.sets.length];
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = this.isSameAsRelease(other, i) ? sets[i - NPM]
+                    : share(sets, i, this.sets[i].intersection(other.sets[i]));
+        }
+        return new CompiledRequirement(requirement, SemverType.STRICT, sets);
+    }
+
+    /**
+     * @param requirement the OR of the requirements of the compiled ones
+     * @param other the other compiled requirement
+     *
+     * @return the compiled requirement
+     */
+    CompiledRequirement union(Requirement requirement, CompiledRequirement other) {
+        VersionIntervalSet[] sets = new VersionIntervalSet[this.sets.length];
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = this.isSameAsRelease(other, i) ? sets[i - NPM]
+                    : share(sets, i, this.sets[i].union(other.sets[i]));
+        }
+        return new CompiledRequirement(requirement, SemverType.STRICT, sets);
+    }
+
+    /**
+     * @return true if a version of the shape is in both sets
+     */
+    private static boolean intersects(VersionIntervalSet set1, VersionIntervalSet set2, int shape) {
+        int i = 0;
+        int j = 0;
+        while (i < set1.size() && j < set2.size()) {
+            VersionInterval interval1 = set1.get(i);
+            VersionInterval interval2 = set2.get(j);
+            VersionInterval lower = VersionInterval.compareLowers(interval1, interval2) >= 0 ? interval1 : interval2;
+            int cmp = VersionInterval.compareUppers(interval1, interval2);
+            VersionInterval upper = cmp <= 0 ? interval1 : interval2;
+            Semver version = lowestVersion(lower.lower, lower.lowerInclusive, shape);
+            if (version != null && (upper.upper == null || !upper.isBelow(version))) {
+                return true;
+            }
+            // The interval that ends first cannot intersect anything else
+            if (cmp <= 0) i++;
+            if (cmp >= 0) j++;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the lowest version of a shape above a bound. The versions of a shape are ordered as their bounds: a
+     * release is "major.minor.patch", and a pre-release is a suffix of "major.minor.patch" (of "major.minor.0" without a
+     * patch, of "major.0.0" without a minor part). The version just above a pre-release "1.2.3-alpha" is
+     * "1.2.3-alpha.0", and all the pre-releases of "1.2.3" are lower than the release "1.2.3".
+     *
+     * @param lower the lower bound, which has all its parts, or null if there is none
+     * @param inclusive true if the bound is included
+     * @param shape the shape of the versions
+     *
+     * @return the lowest version of the shape that is greater than (or equal to) the bound, or null if there is none
+     */
+    private static Semver lowestVersion(Semver lower, boolean inclusive, int shape) {
+        boolean preRelease = shape != RELEASE;
+        if (lower == null) {
+            return Semver.createBound(0, 0, 0, preRelease);
+        }
+        int major = lower.getMajor();
+        int minor = lower.getMinor();
+        int patch = lower.getPatch();
+        if (!preRelease) {
+            if (lower.hasSuffix() || inclusive) {
+                return Semver.createBound(major, minor, patch, false);
+            }
+        } else if (lower.hasSuffix() && (shape == PRE_RELEASE
+                || (patch == 0 && (shape == PRE_RELEASE_WITHOUT_PATCH || minor == 0)))) {
+            if (inclusive) {
+                return lower;
+            }
+            String[] tokens = lower.getSuffixTokens();
+            String[] next = new String[tokens.length + 1];
+            System.arraycopy(tokens, 0, next, 0, tokens.length);
+            next[tokens.length] = "0";
+            return Semver.createFromSortKey(SemverType.STRICT, major, minor, patch, next);
+        }
+        // The next main part of the shape, all its versions are greater than the bound
+        if ((shape == RELEASE || shape == PRE_RELEASE) && patch < Integer.MAX_VALUE) {
+            return Semver.createBound(major, minor, patch + 1, preRelease);
+        } else if (shape != PRE_RELEASE_WITHOUT_MINOR && minor < Integer.MAX_VALUE) {
+            return Semver.createBound(major, minor + 1, 0, preRelease);
+        } else if (major < Integer.MAX_VALUE) {
+            return Semver.createBound(major + 1, 0, 0, preRelease);
+        }
+        return null;
+    }
+
+    /**
+     * @return the requirement that was compiled
+     */
+    public Requirement getRequirement() {
+        return this.requirement;
+    }
+
+    /**
+     * @return the intervals that contain all the versions that satisfy the requirement, whatever their kind
+     */
+    VersionIntervalSet getCandidates() {
+        return this.candidates;
+    }
+
+    /**
+     * @param index the index of the set, see {@link #indexOf(Semver)}
+     *
+     * @return the intervals of the versions of this index that satisfy the requirement
+     */
+    VersionIntervalSet getSet(int index) {
+        return this.sets[index];
+    }
+
+    /**
+     * @param npm true for the NPM versions
+     * @param preRelease true for the versions with a suffix and all their parts
+     *
+     * @return the intervals of versions that satisfy the requirement
+     */
+    VersionIntervalSet getIntervals(boolean npm, boolean preRelease) {
+        return this.sets[(npm ? NPM : 0) + (preRelease ? PRE_RELEASE : RELEASE)];
+    }
+
+    @Override public String toString() {
+        return this.requirement + " => " + this.sets[RELEASE];
+    }
+}
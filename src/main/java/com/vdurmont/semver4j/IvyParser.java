@@ -0,0 +1,262 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Requirement.RequirementOperator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass parser of the Ivy requirements:
+ * - a version: "1.2.3"
+ * - a dynamic version: "1.2.+" or "1.+"
+ * - the latest version: "latest.integration", "latest.release"...
+ * - an interval: "[1.0,2.0]", "]1.0,2.0[", "[1.0,2.0)", "[1.0,)", "(,2.0]"... A bound is excluded by a bracket turned
+ * outwards or by a parenthesis, a missing bound is infinite.
+ * - a union of intervals: "(,1.0],[1.2,)"
+ *
+ * The bounds are created from their parts, and an invalid requirement gives null instead of throwing an exception.
+ */
+class IvyParser {
+    private static final String LATEST_PREFIX = "latest.";
+
+    private final String requirement;
+    private final int end;
+    private int position;
+
+    private IvyParser(String requirement, int start, int end) {
+        this.requirement = requirement;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * @param requirement the requirement as a string
+     *
+     * @return the requirement, or null if it is invalid
+     */
+    static Requirement parse(String requirement) {
+        int start = 0;
+        int end = requirement.length();
+        while (start < end && requirement.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && requirement.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        IvyParser parser = new IvyParser(requirement, start, end);
+        char first = requirement.charAt(start);
+        if (first == '[' || first == ']' || first == '(') {
+            return parser.parseIntervals();
+        } else if (requirement.startsWith(LATEST_PREFIX, start)) {
+            return parser.parseLatest();
+        } else if (end - start > 2 && requirement.charAt(end - 2) == '.' && requirement.charAt(end - 1) == '+') {
+            return parser.parseDynamic();
+        }
+        SemverParseResult result = Semver.tryParse(requirement, Semver.SemverType.LOOSE);
+        return result.isValid() ? Requirement.build(result.getSemver()) : null;
+    }
+
+    /**
+     * "1.2.+" matches the versions from 1.2.0 to 1.3.0 (excluded) and "1.+" the versions from 1.0.0 to 2.0.0 (excluded)
+     */
+    private Requirement parseDynamic() {
+        int major = this.readNumber();
+        if (major < 0 || !this.accept('.')) {
+            return null;
+        }
+        Semver lower;
+        Semver upper;
+        if (this.accept('+')) {
+            if (major == Integer.MAX_VALUE) {
+                return null;
+            }
+            lower = Semver.createRelease(major, 0, 0);
+            upper = Semver.createRelease(major + 1, 0, 0);
+        } else {
+            int minor = this.readNumber();
+            if (minor < 0 || minor == Integer.MAX_VALUE || !this.accept('.') || !this.accept('+')) {
+                return null;
+            }
+            lower = Semver.createRelease(major, minor, 0);
+            upper = Semver.createRelease(major, minor + 1, 0);
+        }
+        if (this.position != this.end) {
+            return null;
+        }
+        return and(new Range(lower, Range.RangeOperator.GTE), new Range(upper, Range.RangeOperator.LT));
+    }
+
+    private Requirement parseLatest() {
+        this.position += LATEST_PREFIX.length();
+        if (this.position == this.end) {
+            return null;
+        }
+        for (; this.position < this.end; this.position++) {
+            char c = this.requirement.charAt(this.position);
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_') {
+                return null;
+            }
+        }
+        return new Requirement(new Range(Semver.createRelease(0, 0, 0), Range.RangeOperator.GTE), null, null, null);
+    }
+
+    /**
+     * Parses an interval, or a union of intervals separated by commas as in Maven: "(,1.0],[1.2,)". The intervals of a
+     * union are sorted and merged, and joined into a balanced OR whose nodes know where their right side starts: a
+     * version is checked against one interval only, found in a logarithmic time.
+     */
+    private Requirement parseIntervals() {
+        List<VersionInterval> intervals = new ArrayList<VersionInterval>();
+        do {
+            VersionInterval interval = this.readInterval();
+            if (interval == null) {
+                return null;
+            }
+            intervals.add(interval);
+        } while (this.accept(','));
+        if (this.position != this.end) {
+            return null;
+        }
+        if (intervals.size() == 1) {
+            return toRequirement(intervals.get(0));
+        }
+
+        VersionIntervalSet union = VersionIntervalSet.union(intervals);
+        if (union.isEmpty()) {
+            // Nothing satisfies the requirement, as its first interval
+            return toRequirement(intervals.get(0));
+        }
+        return union(union, 0, union.size());
+    }
+
+    /**
+     * @return the interval, or null if there is no valid interval
+     */
+    private VersionInterval readInterval() {
+        if (this.position >= this.end) {
+            return null;
+        }
+        char opening = this.requirement.charAt(this.position++);
+        if (opening != '[' && opening != ']' && opening != '(') {
+            return null;
+        }
+        Semver lower = null;
+        if (!(opening == '(' && this.peek() == ',')) {
+            lower = this.readVersion();
+            if (lower == null) {
+                return null;
+            }
+        }
+        if (!this.accept(',')) {
+            return null;
+        }
+        Semver upper = null;
+        if (this.peek() != ')') {
+            upper = this.readVersion();
+            if (upper == null) {
+                return null;
+            }
+        }
+        char closing = this.peek();
+        if (closing != ']' && closing != '[' && closing != ')') {
+            return null;
+        }
+        this.position++;
+        if (lower == null && upper == null) {
+            // "(,)" is not an interval
+            return null;
+        }
+        return new VersionInterval(lower, opening == '[', upper, closing == ']');
+    }
+
+    private static Requirement toRequirement(VersionInterval interval) {
+        Range lower = null;
+        if (interval.lower != null) {
+            lower = new Range(interval.lower, interval.lowerInclusive ? Range.RangeOperator.GTE : Range.RangeOperator.GT);
+        }
+        Range upper = null;
+        if (interval.upper != null) {
+            upper = new Range(interval.upper, interval.upperInclusive ? Range.RangeOperator.LTE : Range.RangeOperator.LT);
+        }
+        if (lower != null && upper != null) {
+            return and(lower, upper);
+        } else if (lower != null) {
+            return new Requirement(lower, null, null, null);
+        } else if (upper != null) {
+            return new Requirement(upper, null, null, null);
+        }
+        // The union of the intervals contains all the versions, none is lower than 0.0.0-0
+        return new Requirement(new Range("0.0.0-0", Range.RangeOperator.GTE), null, null, null);
+    }
+
+    private static Requirement union(VersionIntervalSet intervals, int from, int to) {
+        if (to - from == 1) {
+            return toRequirement(intervals.get(from));
+        }
+        int middle = from + (to - from) / 2;
+        return Requirement.sortedUnion(union(intervals, from, middle), union(intervals, middle, to), intervals.get(middle));
+    }
+
+    /**
+     * Reads a version of 1 to 3 numbers, the missing ones are zeros.
+     *
+     * @return the version, or null if there is no valid version
+     */
+    private Semver readVersion() {
+        int major = this.readNumber();
+        int minor = 0;
+        int patch = 0;
+        if (major >= 0 && this.accept('.')) {
+            minor = this.readNumber();
+            if (minor >= 0 && this.accept('.')) {
+                patch = this.readNumber();
+            }
+        }
+        if (major < 0 || minor < 0 || patch < 0) {
+            return null;
+        }
+        return Semver.createRelease(major, minor, patch);
+    }
+
+    /**
+     * @return the number, or -1 if there is no number or if it is too large
+     */
+    private int readNumber() {
+        int start = this.position;
+        long number = 0;
+        while (this.position < this.end) {
+            char c = this.requirement.charAt(this.position);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            number = number * 10 + (c - '0');
+            if (number > Integer.MAX_VALUE) {
+                return -1;
+            }
+            this.position++;
+        }
+        return this.position > start ? (int) number : -1;
+    }
+
+    private char peek() {
+        return this.position < this.end ? this.requirement.charAt(this.position) : '\0';
+    }
+
+    private boolean accept(char c) {
+        if (this.peek() == c && this.position < this.end) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private static Requirement and(Range range1, Range range2) {
+        Requirement req1 = new Requirement(range1, null, null, null);
+        Requirement req2 = new Requirement(range2, null, null, null);
+        return new Requirement(null, req1, RequirementOperator.AND, req2);
+    }
+}
@@ -0,0 +1,164 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded and thread-safe cache of values parsed from strings, shared by {@link SemverCache} and
+ * {@link RequirementCache}.
+ *
+ * The cache is split in segments that are locked independently. Each version type has its own segments, so a value
+ * is always returned for the type it was requested with.
+ *
+ * @param <V> the type of the parsed values
+ */
+class ParseCache<V> {
+    private static final int MAX_SEGMENTS_PER_TYPE = 16;
+
+    /**
+     * Parses the values that are not cached yet
+     */
+    interface Parser<V> {
+        /**
+         * @throws SemverException if the string is invalid (invalid strings are never cached)
+         */
+        V parse(String value, SemverType type);
+    }
+
+    private final Parser<V> parser;
+    private final int segmentsPerType;
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    ParseCache(Parser<V> parser, int capacity, boolean accessOrder) {
+        this.parser = parser;
+        // Small caches use a single segment per type so that the capacity is exact
+        int segmentsPerType = 1;
+        while (segmentsPerType < MAX_SEGMENTS_PER_TYPE && capacity / (segmentsPerType * 2) >= MAX_SEGMENTS_PER_TYPE) {
+            segmentsPerType *= 2;
+        }
+        this.segmentsPerType = segmentsPerType;
+        this.segments = (Segment<V>[]) new Segment<?>[SemverType.values().length * segmentsPerType];
+        for (int i = 0; i < this.segments.length; i++) {
+            int segmentCapacity = capacity / segmentsPerType + (i % segmentsPerType < capacity % segmentsPerType ? 1 : 0);
+            this.segments[i] = new Segment<V>(segmentCapacity, accessOrder);
+        }
+    }
+
+    V get(String value, SemverType type) {
+        Segment<V> segment = this.segmentFor(value, type);
+        V parsed = segment.get(value);
+        if (parsed != null) {
+            return parsed;
+        }
+        // Parse outside of the lock, the first instance stored wins
+        return segment.putIfAbsent(value, this.parser.parse(value, type));
+    }
+
+    void clear() {
+        for (Segment<V> segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : this.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    long getHitCount() {
+        long count = 0;
+        for (Segment<V> segment : this.segments) {
+            count += segment.hits();
+        }
+        return count;
+    }
+
+    long getMissCount() {
+        long count = 0;
+        for (Segment<V> segment : this.segments) {
+            count += segment.misses();
+        }
+        return count;
+    }
+
+    long getEvictionCount() {
+        long count = 0;
+        for (Segment<V> segment : this.segments) {
+            count += segment.evictions();
+        }
+        return count;
+    }
+
+    private Segment<V> segmentFor(String value, SemverType type) {
+        int hash = value.hashCode();
+        hash ^= hash >>> 16;
+        return this.segments[type.ordinal() * this.segmentsPerType + (hash & (this.segmentsPerType - 1))];
+    }
+
+    /**
+     * A part of the cache, all the accesses are synchronized on the segment.
+     */
+    private static class Segment<V> {
+        private final Map<String, V> values;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        private Segment(final int capacity, boolean accessOrder) {
+            this.values = new LinkedHashMap<String, V>(16, 0.75f, accessOrder) {
+                @Override protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                    if (this.size() > capacity) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized V get(String value) {
+            V parsed = this.values.get(value);
+            if (parsed != null) {
+                this.hits++;
+            } else {
+                this.misses++;
+            }
+            return parsed;
+        }
+
+        private synchronized V putIfAbsent(String value, V parsed) {
+            V existing = this.values.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            this.values.put(value, parsed);
+            return parsed;
+        }
+
+        private synchronized void clear() {
+            this.values.clear();
+        }
+
+        private synchronized int size() {
+            return this.values.size();
+        }
+
+        private synchronized long hits() {
+            return this.hits;
+        }
+
+        private synchronized long misses() {
+            return this.misses;
+        }
+
+        private synchronized long evictions() {
+            return this.evictions;
+        }
+    }
+}
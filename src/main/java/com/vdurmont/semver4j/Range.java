@@ -6,6 +6,8 @@ import java.util.Objects;
 public class Range {
     protected final Semver version;
     protected final RangeOperator op;
+    // Lazily computed
+    private int hash;
 
     public Range(Semver version, RangeOperator op) {
         this.version = version;
@@ -21,17 +23,18 @@ public class Range {
     }
 
     public boolean isSatisfiedBy(Semver version) {
+        int cmp = version.compareTo(this.version);
         switch (this.op) {
             case EQ:
-                return version.isEquivalentTo(this.version);
+                return cmp == 0;
             case LT:
-                return version.isLowerThan(this.version);
+                return cmp < 0;
             case LTE:
-                return version.isLowerThan(this.version) || version.isEquivalentTo(this.version);
+                return cmp <= 0;
             case GT:
-                return version.isGreaterThan(this.version);
+                return cmp > 0;
             case GTE:
-                return version.isGreaterThan(this.version) || version.isEquivalentTo(this.version);
+                return cmp >= 0;
         }
 
         throw new RuntimeException("Code error. Unknown RangeOperator: " + this.op); // Should never happen
@@ -41,12 +44,18 @@ public class Range {
         if (this == o) return true;
         if (!(o instanceof Range)) return false;
         Range range = (Range) o;
+        if (this.hashCode() != range.hashCode()) return false;
         return Objects.equals(version, range.version) &&
                 op == range.op;
     }
 
     @Override public int hashCode() {
-        return Objects.hash(version, op);
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = Objects.hash(version, op);
+            this.hash = hash;
+        }
+        return hash;
     }
 
     @Override public String toString() {
@@ -1,19 +1,13 @@
 package com.vdurmont.semver4j;
 
 import com.vdurmont.semver4j.Semver.SemverType;
-import com.vdurmont.semver4j.Tokenizer.Token;
-import com.vdurmont.semver4j.Tokenizer.TokenType;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Deque;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Stack;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A requirement will provide an easy way to check if a version is satisfying.
@@ -22,32 +16,30 @@ import java.util.regex.Pattern;
  * - NPM: follows the rules of NPM
  */
 public class Requirement {
-    private static final Pattern IVY_DYNAMIC_PATCH_PATTERN = Pattern.compile("(\\d+)\\.(\\d+)\\.\\+");
-    private static final Pattern IVY_DYNAMIC_MINOR_PATTERN = Pattern.compile("(\\d+)\\.\\+");
-    private static final Pattern IVY_LATEST_PATTERN = Pattern.compile("latest\\.\\w+");
-    private static final Pattern IVY_MATH_BOUNDED_PATTERN = Pattern.compile(
-            "(\\[|\\])" + // 1ST GROUP: a square bracket
-                    "([\\d\\.]+)" + // 2ND GROUP: a version
-                    "," + // a comma separator
-                    "([\\d\\.]+)" + // 3RD GROUP: a version
-                    "(\\[|\\])"  // 4TH GROUP: a square bracket
-    );
-    private static final Pattern IVY_MATH_LOWER_UNBOUNDED_PATTERN = Pattern.compile(
-            "\\(," + // a parenthesis and a comma separator
-                    "([\\d\\.]+)" + // 1ST GROUP: a version
-                    "(\\[|\\])"  // 2ND GROUP: a square bracket
-    );
-    private static final Pattern IVY_MATH_UPPER_UNBOUNDED_PATTERN = Pattern.compile(
-            "(\\[|\\])" + // 1ST GROUP: a square bracket
-                    "([\\d\\.]+)" + // 2ND GROUP: a version
-                    ",\\)" // a comma separator and a parenthesis
-    );
+    private static final Semver[] NO_VERSIONS = new Semver[0];
+
+    private static volatile RequirementCache cache;
+    private static volatile RequirementInterner interner;
 
     protected final Range range;
     protected final Requirement req1;
     protected final RequirementOperator op;
     protected final Requirement req2;
 
+    // The number of ranges of the AND group whose root is this node, 0 if the node is not such a root (the group
+    // contains something else than ranges and AND operators). The ranges are only flattened for the nodes that are
+    // evaluated, usually the root of the group: the other nodes of the group do not keep a copy.
+    final int andRangeCount;
+    // Lazily flattened, see andGroup()
+    private AndGroup andGroup;
+    // For an OR of sorted and disjoint intervals, the first interval of req2: the versions below it can only satisfy
+    // req1, and the other ones can only satisfy req2 (null for the other requirements)
+    private final VersionInterval req2Start;
+    // Lazily compiled
+    private CompiledRequirement compiled;
+    // Lazily computed from the hash codes of the children, which are cached too
+    private int hash;
+
     /**
      * Builds a requirement. (private use only)
      *
@@ -59,10 +51,121 @@ public class Requirement {
      * @param req2 the requirement used as a right operand (requires the `req1` and `op` params to be provided)
      */
     protected Requirement(Range range, Requirement req1, RequirementOperator op, Requirement req2) {
+        this(range, req1, op, req2, null, range == null && op == RequirementOperator.AND
+                && rangeCount(req1) > 0 && rangeCount(req2) > 0);
+    }
+
+    private Requirement(Range range, Requirement req1, RequirementOperator op, Requirement req2,
+                        VersionInterval req2Start, boolean andGroup) {
         this.range = range;
         this.req1 = req1;
         this.op = op;
         this.req2 = req2;
+        this.req2Start = req2Start;
+        this.andRangeCount = andGroup ? rangeCount(req1) + rangeCount(req2) : 0;
+    }
+
+    /**
+     * Creates an OR of requirements that only accept versions of sorted and disjoint intervals: all the versions
+     * accepted by req1 are lower than the first interval of req2, and all the versions accepted by req2 are in its
+     * intervals. Checking a version only checks one side of the OR.
+     *
+     * @param req1 the requirement of the lower intervals
+     * @param req2 the requirement of the upper intervals
+     * @param req2Start the first interval of req2
+     *
+     * @return the union of the requirements
+     */
+    static Requirement sortedUnion(Requirement req1, Requirement req2, VersionInterval req2Start) {
+        return new Requirement(null, req1, RequirementOperator.OR, req2, req2Start, false);
+    }
+
+    /**
+     * Creates the same requirement with other instances of its range and children, that must be equal to the current
+     * ones. (used by {@link RequirementInterner})
+     *
+     * @return the new requirement, or the current one if the instances are the same
+     */
+    Requirement withChildren(Range range, Requirement req1, Requirement req2) {
+        if (range == this.range && req1 == this.req1 && req2 == this.req2) {
+            return this;
+        }
+        Requirement requirement = new Requirement(range, req1, this.op, req2, this.req2Start, this.andRangeCount > 0);
+        requirement.compiled = this.compiled;
+        requirement.andGroup = this.andGroup;
+        return requirement;
+    }
+
+    /**
+     * @return the number of ranges of a range or of the root of an AND group, 0 for the other requirements
+     */
+    private static int rangeCount(Requirement requirement) {
+        if (requirement == null) {
+            return 0;
+        }
+        return requirement.range != null ? 1 : requirement.andRangeCount;
+    }
+
+    /**
+     * @return all the ranges of the AND group whose root is this node, in order (shared, must not be modified), or
+     * null if the node is not the root of an AND group
+     */
+    Range[] andRanges() {
+        return this.andRangeCount > 0 ? this.andGroup().ranges : null;
+    }
+
+    private AndGroup andGroup() {
+        AndGroup group = this.andGroup;
+        if (group == null) {
+            group = new AndGroup(this.flattenAndRanges());
+            this.andGroup = group;
+        }
+        return group;
+    }
+
+    /**
+     * Collects the ranges of the group without recursion, so that the chains built by hand do not overflow the stack.
+     * The subgroups that were already flattened are copied.
+     */
+    private Range[] flattenAndRanges() {
+        Range[] ranges = new Range[this.andRangeCount];
+        int count = 0;
+        Deque<Requirement> stack = new ArrayDeque<Requirement>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            Requirement requirement = stack.pop();
+            AndGroup group = requirement.andGroup;
+            if (requirement.range != null) {
+                ranges[count++] = requirement.range;
+            } else if (group != null) {
+                System.arraycopy(group.ranges, 0, ranges, count, group.ranges.length);
+                count += group.ranges.length;
+            } else {
+                stack.push(requirement.req2);
+                stack.push(requirement.req1);
+            }
+        }
+        return ranges;
+    }
+
+    private static Semver[] preReleaseVersions(Range[] ranges) {
+        int count = 0;
+        for (Range range : ranges) {
+            if (range.version != null && range.version.hasSuffix()) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return NO_VERSIONS;
+        }
+        Semver[] versions = new Semver[count];
+        count = 0;
+        for (Range range : ranges) {
+            if (range.version != null && range.version.hasSuffix()) {
+                versions[count++] = range.version;
+            }
+        }
+        return versions;
     }
 
     /**
@@ -84,7 +187,7 @@ public class Requirement {
      * @return the generated requirement
      */
     public static Requirement buildStrict(String requirement) {
-        return build(new Semver(requirement, Semver.SemverType.STRICT));
+        return of(requirement, Semver.SemverType.STRICT);
     }
 
     /**
@@ -95,7 +198,7 @@ public class Requirement {
      * @return the generated requirement
      */
     public static Requirement buildLoose(String requirement) {
-        return build(new Semver(requirement, Semver.SemverType.LOOSE));
+        return of(requirement, Semver.SemverType.LOOSE);
     }
 
     /**
@@ -106,10 +209,7 @@ public class Requirement {
      * @return the generated requirement
      */
     public static Requirement buildNPM(String requirement) {
-        if (requirement.isEmpty()) {
-            requirement = "*";
-        }
-        return buildWithTokenizer(requirement, Semver.SemverType.NPM);
+        return of(requirement, Semver.SemverType.NPM);
     }
 
     /**
@@ -120,274 +220,106 @@ public class Requirement {
      * @return the generated requirement
      */
     public static Requirement buildCocoapods(String requirement) {
-        return buildWithTokenizer(requirement, Semver.SemverType.COCOAPODS);
-    }
-
-    private static Requirement buildWithTokenizer(String requirement, Semver.SemverType type) {
-        // Tokenize the string
-        List<Tokenizer.Token> tokens = Tokenizer.tokenize(requirement, type);
-
-        tokens = removeFalsePositiveVersionRanges(tokens);
-
-        tokens = addParentheses(tokens);
-
-        // Tranform the tokens list to a reverse polish notation list
-        List<Tokenizer.Token> rpn = toReversePolishNotation(tokens);
-
-        // Create the requirement tree by evaluating the rpn list
-        return evaluateReversePolishNotation(rpn.iterator(), type);
+        return of(requirement, Semver.SemverType.COCOAPODS);
     }
 
     /**
-     * Builds a requirement following the rules of Ivy.
+     * Builds a requirement following the rules of a version system, shared with the other callers when the
+     * requirement is cached. Requirements are immutable, so the instances returned by this method can be used exactly
+     * like the ones returned by the other build methods.
+     *
+     * @see #setCache(RequirementCache)
      *
      * @param requirement the requirement as a string
+     * @param type the version system of the requirement
      *
      * @return the generated requirement
+     *
+     * @throws SemverException if the requirement is invalid
      */
-    public static Requirement buildIvy(String requirement) {
-        try {
-            return buildLoose(requirement);
-        } catch (SemverException ignored) {
-        }
-
-        Matcher matcher = IVY_DYNAMIC_PATCH_PATTERN.matcher(requirement);
-        if (matcher.find()) {
-            int major = Integer.valueOf(matcher.group(1));
-            int minor = Integer.valueOf(matcher.group(2));
-            Requirement lower = new Requirement(new Range(major + "." + minor + ".0", Range.RangeOperator.GTE), null, null, null);
-            Requirement upper = new Requirement(new Range(major + "." + (minor + 1) + ".0", Range.RangeOperator.LT), null, null, null);
-            return new Requirement(null, lower, RequirementOperator.AND, upper);
-        }
-        matcher = IVY_DYNAMIC_MINOR_PATTERN.matcher(requirement);
-        if (matcher.find()) {
-            int major = Integer.valueOf(matcher.group(1));
-            Requirement lower = new Requirement(new Range(major + ".0.0", Range.RangeOperator.GTE), null, null, null);
-            Requirement upper = new Requirement(new Range((major + 1) + ".0.0", Range.RangeOperator.LT), null, null, null);
-            return new Requirement(null, lower, RequirementOperator.AND, upper);
-        }
-        matcher = IVY_LATEST_PATTERN.matcher(requirement);
-        if (matcher.find()) {
-            return new Requirement(new Range("0.0.0", Range.RangeOperator.GTE), null, null, null);
-        }
-        matcher = IVY_MATH_BOUNDED_PATTERN.matcher(requirement);
-        if (matcher.find()) {
-            Range.RangeOperator lowerOp = "[".equals(matcher.group(1)) ? Range.RangeOperator.GTE : Range.RangeOperator.GT;
-            Semver lowerVersion = new Semver(matcher.group(2), Semver.SemverType.LOOSE);
-            Semver upperVersion = new Semver(matcher.group(3), Semver.SemverType.LOOSE);
-            Range.RangeOperator upperOp = "]".equals(matcher.group(4)) ? Range.RangeOperator.LTE : Range.RangeOperator.LT;
-            Requirement lower = new Requirement(new Range(extrapolateVersion(lowerVersion), lowerOp), null, null, null);
-            Requirement upper = new Requirement(new Range(extrapolateVersion(upperVersion), upperOp), null, null, null);
-            return new Requirement(null, lower, RequirementOperator.AND, upper);
-        }
-        matcher = IVY_MATH_LOWER_UNBOUNDED_PATTERN.matcher(requirement);
-        if (matcher.find()) {
-            Semver version = new Semver(matcher.group(1), Semver.SemverType.LOOSE);
-            Range.RangeOperator op = "]".equals(matcher.group(2)) ? Range.RangeOperator.LTE : Range.RangeOperator.LT;
-            return new Requirement(new Range(extrapolateVersion(version), op), null, null, null);
-        }
-        matcher = IVY_MATH_UPPER_UNBOUNDED_PATTERN.matcher(requirement);
-        if (matcher.find()) {
-            Range.RangeOperator op = "[".equals(matcher.group(1)) ? Range.RangeOperator.GTE : Range.RangeOperator.GT;
-            Semver version = new Semver(matcher.group(2), Semver.SemverType.LOOSE);
-            return new Requirement(new Range(extrapolateVersion(version), op), null, null, null);
-        }
-
-        throw new SemverException("Invalid requirement");
+    public static Requirement of(String requirement, Semver.SemverType type) {
+        RequirementCache cache = Requirement.cache;
+        return cache != null ? cache.get(requirement, type) : parse(requirement, type);
     }
 
     /**
-     * Return parenthesized expression, giving lowest priority to OR operator
-     *
-     * @param tokens the tokens contained in the requirement string
-     *
-     * @return the tokens with parenthesis
+     * @return the cache used by {@link #of(String, SemverType)}, or null if the cache is disabled (the default)
      */
-    private static List<Token> addParentheses(List<Token> tokens) {
-        List<Token> result = new ArrayList<Token>();
-        result.add(new Token(TokenType.OPENING, "("));
-        for (Token token : tokens) {
-            if (token.type == TokenType.OR) {
-                result.add(new Token(TokenType.CLOSING, ")"));
-                result.add(token);
-                result.add(new Token(TokenType.OPENING, "("));
-            } else {
-                result.add(token);
-            }
-        }
-        result.add(new Token(TokenType.CLOSING, ")"));
-        return result;
+    public static RequirementCache getCache() {
+        return cache;
     }
 
     /**
-     * Some requirements may contain versions that look like version ranges. For example ' 0.0.1-SNASHOT ' could be
-     * interpreted incorrectly as a version range from 0.0.1 to SNAPSHOT. This method parses all tokens and looks for
-     * groups of three tokens that are respectively of type [VERSION, HYPHEN, VERSION] and validates that the token
-     * after the hyphen is a valid version string. If it isn't the, three tokens are merged into one (thus creating a
-     * single version token, in which the third token is the build information).
+     * Changes the cache used by {@link #of(String, SemverType)}, and so by the build methods that take a string and
+     * by {@link Semver#satisfies(String)}.
      *
-     * @param tokens the tokens contained in the requirement string
-     *
-     * @return the tokens with any false positive version ranges replaced with version strings
+     * @param cache the new cache, or null to disable the cache
      */
-    private static List<Token> removeFalsePositiveVersionRanges(List<Token> tokens) {
-        List<Token> result = new ArrayList<Token>();
-        for (int i = 0; i < tokens.size(); i++) {
-            Token token = tokens.get(i);
-            if (thereIsFalsePositiveVersionRange(tokens, i)) {
-                token = new Token(TokenType.VERSION, token.value + '-' + tokens.get(i + 2).value);
-                i += 2;
-            }
-            result.add(token);
-        }
-        return result;
+    public static void setCache(RequirementCache cache) {
+        Requirement.cache = cache;
     }
 
-    private static boolean thereIsFalsePositiveVersionRange(List<Token> tokens, int i) {
-        if (i + 2 >= tokens.size()) {
-            return false;
-        }
-        Token[] suspiciousTokens = new Token[] { tokens.get(i), tokens.get(i + 1), tokens.get(i + 2), };
-        if (!suspiciousTokens[0].type.equals(TokenType.VERSION)) {
-            return false;
-        }
-        if (!suspiciousTokens[2].type.equals(TokenType.VERSION)) {
-            return false;
-        }
-        if (!suspiciousTokens[1].type.equals(TokenType.HYPHEN)) {
-            return false;
-        }
-        return attemptToParse(suspiciousTokens[2].value) == null;
+    /**
+     * @return the interner used by {@link #of(String, SemverType)}, or null if interning is disabled (the default)
+     */
+    public static RequirementInterner getInterner() {
+        return interner;
     }
 
-    private static Semver attemptToParse(String value) {
-        try {
-            return new Semver(value, SemverType.NPM);
-        } catch (SemverException e) {
-            // Ignore.
-        }
-        return null;
+    /**
+     * Changes the interner used by {@link #of(String, SemverType)}, and so by the build methods that take a string
+     * and by {@link Semver#satisfies(String)}. When it is enabled, the requirements built from strings share their
+     * identical versions, ranges and sub-requirements. With the cache, only the requirements that are not cached yet
+     * are interned.
+     *
+     * @param interner the new interner, or null to disable interning
+     */
+    public static void setInterner(RequirementInterner interner) {
+        Requirement.interner = interner;
     }
 
     /**
-     * Adaptation of the shutting yard algorithm
+     * Builds a requirement without looking at the cache.
      */
-    private static List<Tokenizer.Token> toReversePolishNotation(List<Tokenizer.Token> tokens) {
-        LinkedList<Tokenizer.Token> queue = new LinkedList<Tokenizer.Token>();
-        Stack<Tokenizer.Token> stack = new Stack<Tokenizer.Token>();
-
-        for (int i = 0; i < tokens.size(); i++) {
-            Tokenizer.Token token = tokens.get(i);
-            switch (token.type) {
-                case VERSION:
-                    queue.push(token);
-                    break;
-                case CLOSING:
-                    while (stack.peek().type != Tokenizer.TokenType.OPENING) {
-                        queue.push(stack.pop());
-                    }
-                    stack.pop();
-                    if (stack.size() > 0 && stack.peek().type.isUnary()) {
-                        queue.push(stack.pop());
-                    }
-                    break;
-                default:
-                    if (token.type.isUnary()) {
-                        // Push the operand first
-                        i++;
-                        queue.push(tokens.get(i));
-                        // Then the operator
-                        queue.push(token);
-                    } else {
-                        stack.push(token);
-                    }
-                    break;
-            }
-        }
+    static Requirement parse(String requirement, Semver.SemverType type) {
+        RequirementInterner interner = Requirement.interner;
+        Requirement parsed = parseUninterned(requirement, type);
+        return interner != null ? interner.intern(parsed) : parsed;
+    }
 
-        while (!stack.isEmpty()) {
-            queue.push(stack.pop());
+    private static Requirement parseUninterned(String requirement, Semver.SemverType type) {
+        switch (type) {
+            case STRICT:
+            case LOOSE:
+                return build(new Semver(requirement, type));
+            case NPM:
+                return RequirementParser.parse(requirement.isEmpty() ? "*" : requirement, type);
+            case COCOAPODS:
+                return RequirementParser.parse(requirement, type);
+            case IVY:
+                return parseIvy(requirement);
+            default:
+                throw new SemverException("Invalid requirement type: " + type);
         }
-
-        return queue;
     }
 
     /**
-     * Evaluates a reverse polish notation token list
+     * Builds a requirement following the rules of Ivy.
+     *
+     * @param requirement the requirement as a string
+     *
+     * @return the generated requirement
      */
-    private static Requirement evaluateReversePolishNotation(Iterator<Tokenizer.Token> iterator, Semver.SemverType type) {
-        try {
-            Tokenizer.Token token = iterator.next();
-
-            if (token.type == Tokenizer.TokenType.VERSION) {
-                if ("*".equals(token.value) || (type == Semver.SemverType.NPM && "latest".equals(token.value))) {
-                    // Special case for "*" and "latest" in NPM
-                    return new Requirement(new Range("0.0.0", Range.RangeOperator.GTE), null, null, null);
-                }
-                Semver version = new Semver(token.value, type);
-                if (version.getMinor() != null && version.getPatch() != null) {
-                    Range range = new Range(version, Range.RangeOperator.EQ);
-                    return new Requirement(range, null, null, null);
-                } else {
-                    // If we have a version with a wildcard char (like 1.2.x, 1.2.* or 1.2), we need a tilde requirement
-                    return tildeRequirement(version.getValue(), type);
-                }
-            } else if (token.type == Tokenizer.TokenType.HYPHEN) {
-                Tokenizer.Token token3 = iterator.next(); // Note that token3 is before token2!
-                Tokenizer.Token token2 = iterator.next();
-                return hyphenRequirement(token2.value, token3.value, type);
-            } else if (token.type.isUnary()) {
-                Tokenizer.Token token2 = iterator.next();
-
-                Range.RangeOperator rangeOp;
-                switch (token.type) {
-                    case EQ:
-                        rangeOp = Range.RangeOperator.EQ;
-                        break;
-                    case LT:
-                        rangeOp = Range.RangeOperator.LT;
-                        break;
-                    case LTE:
-                        rangeOp = Range.RangeOperator.LTE;
-                        break;
-                    case GT:
-                        rangeOp = Range.RangeOperator.GT;
-                        break;
-                    case GTE:
-                        rangeOp = Range.RangeOperator.GTE;
-                        break;
-                    case TILDE:
-                        return tildeRequirement(token2.value, type);
-                    case CARET:
-                        return caretRequirement(token2.value, type);
-                    default:
-                        throw new SemverException("Invalid requirement");
-                }
-
-                Range range = new Range(token2.value, rangeOp);
-                return new Requirement(range, null, null, null);
-            } else {
-                // They don't call it "reverse" for nothing
-                Requirement req2 = evaluateReversePolishNotation(iterator, type);
-                Requirement req1 = evaluateReversePolishNotation(iterator, type);
-
-                RequirementOperator requirementOp;
-                switch (token.type) {
-                    case OR:
-                        requirementOp = RequirementOperator.OR;
-                        break;
-                    case AND:
-                        requirementOp = RequirementOperator.AND;
-                        break;
-                    default:
-                        throw new SemverException("Invalid requirement");
-                }
+    public static Requirement buildIvy(String requirement) {
+        return of(requirement, Semver.SemverType.IVY);
+    }
 
-                return new Requirement(null, req1, requirementOp, req2);
-            }
-        } catch (NoSuchElementException e) {
+    private static Requirement parseIvy(String requirement) {
+        Requirement result = IvyParser.parse(requirement);
+        if (result == null) {
             throw new SemverException("Invalid requirement");
         }
+        return result;
     }
 
     /**
@@ -402,17 +334,20 @@ public class Requirement {
         if (type != Semver.SemverType.NPM && type != Semver.SemverType.COCOAPODS) {
             throw new SemverException("The tilde requirements are only compatible with NPM and Cocoapods.");
         }
-        Semver semver = new Semver(version, type);
+        return tildeRequirement(new Semver(version, type), type);
+    }
+
+    static Requirement tildeRequirement(Semver semver, Semver.SemverType type) {
         Requirement req1 = new Requirement(new Range(extrapolateVersion(semver), Range.RangeOperator.GTE), null, null, null);
 
-        String next;
+        Semver next;
 
         switch (type) {
             case COCOAPODS: {
                 if (semver.getPatch() != null) {
-                    next = semver.getMajor() + "." + (semver.getMinor() + 1) + ".0";
+                    next = Semver.createRelease(semver.getMajor(), semver.getMinor() + 1, 0);
                 } else if (semver.getMinor() != null) {
-                    next = (semver.getMajor() + 1) + ".0.0";
+                    next = Semver.createRelease(semver.getMajor() + 1, 0, 0);
                 } else {
                     return req1;
                 }
@@ -420,9 +355,9 @@ public class Requirement {
             break;
             case NPM: {
                 if (semver.getMinor() != null) {
-                    next = semver.getMajor() + "." + (semver.getMinor() + 1) + ".0";
+                    next = Semver.createRelease(semver.getMajor(), semver.getMinor() + 1, 0);
                 } else {
-                    next = (semver.getMajor() + 1) + ".0.0";
+                    next = Semver.createRelease(semver.getMajor() + 1, 0, 0);
                 }
             }
             break;
@@ -450,21 +385,21 @@ public class Requirement {
         Semver semver = new Semver(version, type);
         Requirement req1 = new Requirement(new Range(extrapolateVersion(semver), Range.RangeOperator.GTE), null, null, null);
 
-        String next;
+        Semver next;
         if (semver.getMajor() == 0) {
             if (semver.getMinor() == null) {
-                next = "1.0.0";
+                next = Semver.createRelease(1, 0, 0);
             } else if (semver.getMinor() == 0) {
                 if (semver.getPatch() == null) {
-                    next = "0.1.0";
+                    next = Semver.createRelease(0, 1, 0);
                 } else {
-                    next = "0.0." + (semver.getPatch() + 1);
+                    next = Semver.createRelease(0, 0, semver.getPatch() + 1);
                 }
             } else {
-                next = "0." + (semver.getMinor() + 1) + ".0";
+                next = Semver.createRelease(0, semver.getMinor() + 1, 0);
             }
         } else {
-            next = (semver.getMajor() + 1) + ".0.0";
+            next = Semver.createRelease(semver.getMajor() + 1, 0, 0);
         }
         Requirement req2 = new Requirement(new Range(next, Range.RangeOperator.LT), null, null, null);
 
@@ -513,26 +448,7 @@ public class Requirement {
      * @return a semver with the extrapolated minor and patch numbers
      */
     private static Semver extrapolateVersion(Semver semver) {
-        StringBuilder sb = new StringBuilder()
-                .append(semver.getMajor())
-                .append(".")
-                .append(semver.getMinor() == null ? 0 : semver.getMinor())
-                .append(".")
-                .append(semver.getPatch() == null ? 0 : semver.getPatch());
-        boolean first = true;
-        for (int i = 0; i < semver.getSuffixTokens().length; i++) {
-            if (first) {
-                sb.append("-");
-                first = false;
-            } else {
-                sb.append(".");
-            }
-            sb.append(semver.getSuffixTokens()[i]);
-        }
-        if (semver.getBuild() != null) {
-            sb.append("+").append(semver.getBuild());
-        }
-        return new Semver(sb.toString(), semver.getType());
+        return semver.withMissingPartsAsZero(semver.getType());
     }
 
     /**
@@ -565,71 +481,222 @@ public class Requirement {
             // We have several sub-requirements
             switch (this.op) {
                 case AND:
-                    try {
-                        List<Range> set = getAllRanges(this, new ArrayList<Range>());
-                        for (Range range : set) {
-                            if (!range.isSatisfiedBy(version)) {
-                                return false;
-                            }
+                    if (this.andRangeCount == 0) {
+                        // There is an OR in the AND: each side is evaluated on its own
+                        return this.req1.isSatisfiedBy(version) && this.req2.isSatisfiedBy(version);
+                    }
+                    AndGroup group = this.andGroup();
+                    for (Range range : group.ranges) {
+                        if (!range.isSatisfiedBy(version)) {
+                            return false;
                         }
-                        if (version.getSuffixTokens().length > 0) {
-                            // Find the set of versions that are allowed to have prereleases
-                            // For example, ^1.2.3-pr.1 desugars to >=1.2.3-pr.1 <2.0.0
-                            // That should allow `1.2.3-pr.2` to pass.
-                            // However, `1.2.4-alpha.notready` should NOT be allowed,
-                            // even though it's within the range set by the comparators.
-                            for (Range range : set) {
-                                if (range.version == null) {
-                                    continue;
-                                }
-                                if (range.version.getSuffixTokens().length>0) {
-                                    Semver allowed = range.version;
-                                    if (Objects.equals(version.getMajor(), allowed.getMajor()) &&
-                                            Objects.equals(version.getMinor(), allowed.getMinor()) &&
-                                            Objects.equals(version.getPatch(), allowed.getPatch())) {
-                                        return true;
-                                    }
-                                }
+                    }
+                    if (version.hasSuffix()) {
+                        // Find the set of versions that are allowed to have prereleases
+                        // For example, ^1.2.3-pr.1 desugars to >=1.2.3-pr.1 <2.0.0
+                        // That should allow `1.2.3-pr.2` to pass.
+                        // However, `1.2.4-alpha.notready` should NOT be allowed,
+                        // even though it's within the range set by the comparators.
+                        for (Semver allowed : group.preReleaseVersions) {
+                            if (version.hasSameMainPart(allowed)) {
+                                return true;
                             }
-                            // Version has a -pre, but it's not one of the ones we like.
-                            return false;
                         }
-                        return true;
-                    } catch (Exception e) {
-                        // Could be that we have a OR in AND - fallback to default test
-                        return this.req1.isSatisfiedBy(version) && this.req2.isSatisfiedBy(version);
+                        // Version has a -pre, but it's not one of the ones we like.
+                        return false;
                     }
+                    return true;
                 case OR:
+                    if (this.req2Start != null) {
+                        return this.req2Start.isAbove(version) ? this.req1.isSatisfiedBy(version) : this.req2.isSatisfiedBy(version);
+                    }
                     return this.req1.isSatisfiedBy(version) || this.req2.isSatisfiedBy(version);
             }
             throw new RuntimeException("Code error. Unknown RequirementOperator: " + this.op); // Should never happen
         }
     }
 
-    private List<Range> getAllRanges(Requirement requirement, List<Range> res) {
-        if (requirement.range != null) {
-            res.add(requirement.range);
-        } else if (requirement.op == RequirementOperator.AND) {
-            getAllRanges(requirement.req1, res);
-            getAllRanges(requirement.req2, res);
-        } else {
-            throw new RuntimeException("OR in AND not allowed");
+    /**
+     * Compiles the requirement into sorted and disjoint intervals of versions. The compiled requirement gives the same
+     * answers as {@link #isSatisfiedBy(Semver)}, but its cost does not depend on the way the requirement was written.
+     * It is only computed once.
+     *
+     * @return the compiled requirement
+     *
+     * @throws SemverException if the requirement is not made of ranges combined with AND and OR operators
+     */
+    public CompiledRequirement compile() {
+        CompiledRequirement compiled = this.compiled;
+        if (compiled == null) {
+            compiled = CompiledRequirement.compile(this);
+            this.compiled = compiled;
         }
-        return res;
+        return compiled;
+    }
+
+    /**
+     * Returns the greatest version that satisfies the requirement.
+     *
+     * @see #maxSatisfyingSorted(List)
+     *
+     * @param versions the versions, in any order
+     *
+     * @return the greatest version that satisfies the requirement, or null if there is none
+     */
+    public Semver maxSatisfying(Iterable<Semver> versions) {
+        return this.compile().maxSatisfying(versions);
+    }
+
+    /**
+     * Returns the lowest version that satisfies the requirement.
+     *
+     * @see #minSatisfyingSorted(List)
+     *
+     * @param versions the versions, in any order
+     *
+     * @return the lowest version that satisfies the requirement, or null if there is none
+     */
+    public Semver minSatisfying(Iterable<Semver> versions) {
+        return this.compile().minSatisfying(versions);
+    }
+
+    /**
+     * Returns the greatest version of a sorted list that satisfies the requirement. The list is searched from the
+     * upper bound of the requirement, so only a few versions are checked even if the list is long.
+     *
+     * @param sortedVersions the versions, sorted in ascending order (as by {@link Collections#sort(List)}), in a list
+     *                       with fast random access
+     *
+     * @return the greatest version that satisfies the requirement, or null if there is none
+     */
+    public Semver maxSatisfyingSorted(List<Semver> sortedVersions) {
+        return this.compile().maxSatisfyingSorted(sortedVersions);
+    }
+
+    /**
+     * Returns the lowest version of a sorted list that satisfies the requirement. The list is searched from the lower
+     * bound of the requirement, so only a few versions are checked even if the list is long.
+     *
+     * @param sortedVersions the versions, sorted in ascending order (as by {@link Collections#sort(List)}), in a list
+     *                       with fast random access
+     *
+     * @return the lowest version that satisfies the requirement, or null if there is none
+     */
+    public Semver minSatisfyingSorted(List<Semver> sortedVersions) {
+        return this.compile().minSatisfyingSorted(sortedVersions);
+    }
+
+    /**
+     * Returns all the versions of a sorted list that satisfy the requirement. Only the versions between the bounds of
+     * the requirement are checked.
+     *
+     * @param sortedVersions the versions, sorted in ascending order (as by {@link Collections#sort(List)}), in a list
+     *                       with fast random access
+     *
+     * @return the versions that satisfy the requirement, in ascending order
+     */
+    public List<Semver> allSatisfyingSorted(List<Semver> sortedVersions) {
+        return this.compile().allSatisfyingSorted(sortedVersions);
+    }
+
+    /**
+     * Checks if at least one version satisfies both requirements. The answer is computed from the bounds of the ranges
+     * and from the pre-releases that they allow, without checking any version.
+     *
+     * @param other the other requirement
+     *
+     * @return true if the requirements have a version in common
+     *
+     * @throws SemverException if a requirement is not made of ranges combined with AND and OR operators
+     */
+    public boolean intersects(Requirement other) {
+        return this.compile().intersects(other.compile());
+    }
+
+    /**
+     * Checks if all the versions that satisfy the requirement also satisfy another one, without checking any version.
+     * For example "^1.2.3" is a subset of "1.x", but "^1.2.3-beta" is not ("1.2.3-beta" does not satisfy "1.x").
+     *
+     * @param other the other requirement
+     *
+     * @return true if the requirement implies the other one
+     *
+     * @throws SemverException if a requirement is not made of ranges combined with AND and OR operators
+     */
+    public boolean isSubsetOf(Requirement other) {
+        return this.compile().isSubsetOf(other.compile());
+    }
+
+    /**
+     * Creates the requirement satisfied by the versions that satisfy both requirements. Unlike the ranges of
+     * "&gt;=1.2.3-beta &lt;2.0.0", each side keeps its own pre-releases: a pre-release satisfies the intersection if
+     * both requirements allow it. The new requirement is already compiled.
+     *
+     * @param other the other requirement
+     *
+     * @return the intersection of the requirements
+     *
+     * @throws SemverException if a requirement is not made of ranges combined with AND and OR operators
+     */
+    public Requirement intersect(Requirement other) {
+        Requirement intersection = new Requirement(null, this, RequirementOperator.AND, other, null, false);
+        intersection.compiled = this.compile().intersection(intersection, other.compile());
+        return intersection;
+    }
+
+    /**
+     * Creates the requirement satisfied by the versions that satisfy at least one of the requirements, as with "||".
+     * The new requirement is already compiled.
+     *
+     * @param other the other requirement
+     *
+     * @return the union of the requirements
+     *
+     * @throws SemverException if a requirement is not made of ranges combined with AND and OR operators
+     */
+    public Requirement union(Requirement other) {
+        Requirement union = new Requirement(null, this, RequirementOperator.OR, other);
+        union.compiled = this.compile().union(union, other.compile());
+        return union;
+    }
+
+    /**
+     * Creates an equivalent requirement with as few ranges as possible: the bounds that are subsumed by other bounds
+     * are removed, the alternatives that overlap or follow each other are merged, and a requirement that is always
+     * (or never) satisfied becomes a single range. For example "&gt;=1.0.0 &gt;=1.2.0 &lt;3.0.0 &lt;2.5.0" is
+     * "&gt;=1.2.0 &lt;2.5.0", and "1.x || 1.2.x" is "&gt;=1.0.0 &lt;2.0.0".
+     *
+     * The pre-releases are taken into account: the new requirement is satisfied by exactly the same versions. Its ranges
+     * and alternatives are sorted, so two requirements written with the same bounds have the same string.
+     *
+     * @return the simplified requirement
+     *
+     * @throws SemverException if the requirement is not made of ranges combined with AND and OR operators
+     */
+    public Requirement simplify() {
+        return RequirementSimplifier.simplify(this);
     }
 
     @Override public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Requirement)) return false;
         Requirement that = (Requirement) o;
-        return Objects.equals(range, that.range) &&
+        if (this.hashCode() != that.hashCode()) return false;
+        // An intersection does not check its ranges as a group
+        return (andRangeCount == 0) == (that.andRangeCount == 0) &&
+                Objects.equals(range, that.range) &&
                 Objects.equals(req1, that.req1) &&
                 op == that.op &&
                 Objects.equals(req2, that.req2);
     }
 
     @Override public int hashCode() {
-        return Objects.hash(range, req1, op, req2);
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = Objects.hash(range, req1, op, req2);
+            this.hash = hash;
+        }
+        return hash;
     }
 
     @Override public String toString() {
@@ -655,4 +722,18 @@ public class Requirement {
             return s;
         }
     }
+
+    /**
+     * The ranges of an AND group, and the versions of these ranges that have a suffix (a version with a suffix must
+     * have the same main part as one of them). The final fields make the lazy publication safe.
+     */
+    private static class AndGroup {
+        private final Range[] ranges;
+        private final Semver[] preReleaseVersions;
+
+        AndGroup(Range[] ranges) {
+            this.ranges = ranges;
+            this.preReleaseVersions = Requirement.preReleaseVersions(ranges);
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+import com.vdurmont.semver4j.SemverCache.EvictionPolicy;
+
+/**
+ * A bounded and thread-safe cache of parsed requirements, used by {@link Requirement#of(String, SemverType)} (and so
+ * by the build methods of {@link Requirement} and by {@link Semver#satisfies(String)}) once it is enabled with
+ * {@link Requirement#setCache(RequirementCache)}.
+ *
+ * The requirements are cached per version type: the same string is not the same requirement for NPM and for Ivy.
+ */
+public class RequirementCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final ParseCache.Parser<Requirement> PARSER = new ParseCache.Parser<Requirement>() {
+        @Override public Requirement parse(String value, SemverType type) {
+            return Requirement.parse(value, type);
+        }
+    };
+
+    private final int capacity;
+    private final EvictionPolicy evictionPolicy;
+    private final ParseCache<Requirement> requirements;
+
+    /**
+     * Creates a cache with the default capacity, that evicts the least recently used requirements.
+     */
+    public RequirementCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache that evicts the least recently used requirements.
+     *
+     * @param capacity the maximum number of requirements kept for each version type
+     */
+    public RequirementCache(int capacity) {
+        this(capacity, EvictionPolicy.LEAST_RECENTLY_USED);
+    }
+
+    /**
+     * @param capacity the maximum number of requirements kept for each version type
+     * @param evictionPolicy the requirements to evict when the cache is full
+     */
+    public RequirementCache(int capacity, EvictionPolicy evictionPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be strictly positive: " + capacity);
+        }
+        if (evictionPolicy == null) {
+            throw new IllegalArgumentException("The eviction policy is required.");
+        }
+        this.capacity = capacity;
+        this.evictionPolicy = evictionPolicy;
+        this.requirements = new ParseCache<Requirement>(PARSER, capacity, evictionPolicy == EvictionPolicy.LEAST_RECENTLY_USED);
+    }
+
+    /**
+     * Returns the cached requirement, or builds and caches it.
+     *
+     * @param requirement the requirement as a string
+     * @param type the version system of the requirement
+     *
+     * @return the canonical instance of the requirement
+     *
+     * @throws SemverException if the requirement is invalid (invalid requirements are never cached)
+     */
+    public Requirement get(String requirement, SemverType type) {
+        return this.requirements.get(requirement, type);
+    }
+
+    /**
+     * Removes all the requirements from the cache. The statistics are kept.
+     */
+    public void clear() {
+        this.requirements.clear();
+    }
+
+    /**
+     * @return the number of requirements in the cache
+     */
+    public int size() {
+        return this.requirements.size();
+    }
+
+    /**
+     * @return the number of calls to {@link #get(String, SemverType)} that returned a cached requirement
+     */
+    public long getHitCount() {
+        return this.requirements.getHitCount();
+    }
+
+    /**
+     * @return the number of calls to {@link #get(String, SemverType)} that had to build the requirement
+     */
+    public long getMissCount() {
+        return this.requirements.getMissCount();
+    }
+
+    /**
+     * @return the number of requirements removed from the cache to make some room
+     */
+    public long getEvictionCount() {
+        return this.requirements.getEvictionCount();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    @Override public String toString() {
+        return "RequirementCache{" +
+                "capacity=" + capacity +
+                ", evictionPolicy=" + evictionPolicy +
+                ", size=" + size() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() +
+                '}';
+    }
+}
@@ -0,0 +1,393 @@
+package com.vdurmont.semver4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of many requirements tagged with payloads, that finds the requirements satisfied by a version without
+ * checking them one by one.
+ *
+ * The requirements are compiled (see {@link Requirement#compile()}), and their intervals are kept in interval trees: a
+ * version is found in O(log n + k), k being the number of requirements it satisfies. The entries added one by one are
+ * first kept in a small buffer, then in trees whose sizes grow geometrically (each tree is at least twice as big as the
+ * next one), so adding an entry is amortized O(log² n) and finding a version is O(log² n + k). The entries added
+ * together with {@link #addAll(Collection)} are put in the same tree, so a bulk loaded index is a single tree.
+ *
+ * The index is thread-safe. The updates are serialized, and the queries are never blocked: they read an immutable
+ * snapshot of the trees. A query that runs while an entry is removed may still find it.
+ *
+ * @param <T> the type of the payloads
+ */
+public class RequirementIndex<T> {
+    private static final int BUFFER_SIZE = 32;
+
+    // The entries and their item in the snapshot, only used by the updates
+    private final Map<Entry<T>, Item<T>> items = new IdentityHashMap<Entry<T>, Item<T>>();
+    private volatile Snapshot<T> snapshot = new Snapshot<T>(Collections.<Level<T>>emptyList(), new ArrayList<Item<T>>());
+    // The number of removed items that are still in the trees
+    private int removedCount;
+
+    /**
+     * Adds a requirement to the index.
+     *
+     * @param requirement the requirement
+     * @param payload the payload returned with the requirement by {@link #find(Semver)}
+     *
+     * @return the new entry, that can be given to {@link #remove(Entry)}
+     *
+     * @throws SemverException if the requirement is not made of ranges combined with AND and OR operators
+     */
+    public Entry<T> add(Requirement requirement, T payload) {
+        Entry<T> entry = new Entry<T>(requirement, payload);
+        this.add(entry);
+        return entry;
+    }
+
+    /**
+     * Adds an entry to the index.
+     *
+     * @param entry the entry
+     *
+     * @return true if the entry was added, false if it was already in the index
+     */
+    public synchronized boolean add(Entry<T> entry) {
+        if (this.items.containsKey(entry)) {
+            return false;
+        }
+        Item<T> item = new Item<T>(entry);
+        this.items.put(entry, item);
+
+        Snapshot<T> snapshot = this.snapshot;
+        List<Item<T>> buffer = new ArrayList<Item<T>>(snapshot.buffer);
+        buffer.add(item);
+        if (buffer.size() < BUFFER_SIZE) {
+            this.snapshot = new Snapshot<T>(snapshot.levels, buffer);
+        } else {
+            this.snapshot = new Snapshot<T>(this.append(snapshot.levels, buffer), new ArrayList<Item<T>>());
+        }
+        return true;
+    }
+
+    /**
+     * Adds entries to the index, in the same tree.
+     *
+     * @param entries the entries, the ones that are already in the index are ignored
+     *
+     * @return true if at least one entry was added
+     */
+    public synchronized boolean addAll(Collection<? extends Entry<T>> entries) {
+        Snapshot<T> snapshot = this.snapshot;
+        List<Item<T>> added = new ArrayList<Item<T>>(snapshot.buffer);
+        int count = 0;
+        for (Entry<T> entry : entries) {
+            if (!this.items.containsKey(entry)) {
+                Item<T> item = new Item<T>(entry);
+                this.items.put(entry, item);
+                added.add(item);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return false;
+        } else if (added.size() < BUFFER_SIZE) {
+            this.snapshot = new Snapshot<T>(snapshot.levels, added);
+        } else {
+            this.snapshot = new Snapshot<T>(this.append(snapshot.levels, added), new ArrayList<Item<T>>());
+        }
+        return true;
+    }
+
+    /**
+     * Removes an entry from the index.
+     *
+     * @param entry the entry
+     *
+     * @return true if the entry was removed, false if it was not in the index
+     */
+    public synchronized boolean remove(Entry<T> entry) {
+        Item<T> item = this.items.remove(entry);
+        if (item == null) {
+            return false;
+        }
+        item.removed = true;
+
+        Snapshot<T> snapshot = this.snapshot;
+        if (snapshot.buffer.contains(item)) {
+            List<Item<T>> buffer = new ArrayList<Item<T>>(snapshot.buffer);
+            buffer.remove(item);
+            this.snapshot = new Snapshot<T>(snapshot.levels, buffer);
+        } else if (++this.removedCount > this.items.size()) {
+            // Most items of the trees are removed, rebuild a single tree without them
+            this.removedCount = 0;
+            List<Item<T>> all = new ArrayList<Item<T>>(this.items.values());
+            this.snapshot = all.size() < BUFFER_SIZE
+                    ? new Snapshot<T>(Collections.<Level<T>>emptyList(), all)
+                    : new Snapshot<T>(Collections.singletonList(new Level<T>(all)), new ArrayList<Item<T>>());
+        }
+        return true;
+    }
+
+    /**
+     * Removes all the entries from the index.
+     */
+    public synchronized void clear() {
+        for (Item<T> item : this.items.values()) {
+            item.removed = true;
+        }
+        this.items.clear();
+        this.removedCount = 0;
+        this.snapshot = new Snapshot<T>(Collections.<Level<T>>emptyList(), new ArrayList<Item<T>>());
+    }
+
+    /**
+     * Adds a tree of items after the existing ones, and merges the trees that are not at least twice as big as the
+     * next one.
+     */
+    private List<Level<T>> append(List<Level<T>> levels, List<Item<T>> items) {
+        List<Level<T>> result = new ArrayList<Level<T>>(levels);
+        result.add(new Level<T>(items));
+        int last = result.size() - 1;
+        while (last > 0 && result.get(last - 1).items.size() <= 2 * result.get(last).items.size()) {
+            Level<T> level1 = result.get(last - 1);
+            Level<T> level2 = result.remove(last);
+            List<Item<T>> merged = new ArrayList<Item<T>>(level1.items.size() + level2.items.size());
+            for (Level<T> level : Arrays.asList(level1, level2)) {
+                for (Item<T> item : level.items) {
+                    if (item.removed) {
+                        this.removedCount--;
+                    } else {
+                        merged.add(item);
+                    }
+                }
+            }
+            last--;
+            result.set(last, new Level<T>(merged, level1, level2));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Finds the payloads of the requirements satisfied by a version.
+     *
+     * @param version the version
+     *
+     * @return the payloads, in no particular order
+     */
+    public List<T> find(Semver version) {
+        List<Entry<T>> entries = this.findEntries(version);
+        List<T> payloads = new ArrayList<T>(entries.size());
+        for (Entry<T> entry : entries) {
+            payloads.add(entry.payload);
+        }
+        return payloads;
+    }
+
+    /**
+     * Finds the entries of the requirements satisfied by a version.
+     *
+     * @param version the version
+     *
+     * @return the entries, in no particular order
+     */
+    public List<Entry<T>> findEntries(Semver version) {
+        Snapshot<T> snapshot = this.snapshot;
+        int index = CompiledRequirement.indexOf(version);
+        List<Item<T>> found = new ArrayList<Item<T>>();
+        for (Level<T> level : snapshot.levels) {
+            VersionIntervalTree<Item<T>> tree = level.trees[index];
+            if (tree != null) {
+                tree.find(version, found);
+            }
+        }
+        List<Entry<T>> entries = new ArrayList<Entry<T>>(found.size());
+        for (Item<T> item : found) {
+            if (!item.removed) {
+                entries.add(item.entry);
+            }
+        }
+        for (Item<T> item : snapshot.buffer) {
+            if (!item.removed && item.entry.compiled.isSatisfiedBy(version)) {
+                entries.add(item.entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return the number of entries in the index
+     */
+    public synchronized int size() {
+        return this.items.size();
+    }
+
+    /**
+     * @return the entries of the index, in no particular order
+     */
+    public synchronized List<Entry<T>> getEntries() {
+        return new ArrayList<Entry<T>>(this.items.keySet());
+    }
+
+    @Override public String toString() {
+        Snapshot<T> snapshot = this.snapshot;
+        int[] sizes = new int[snapshot.levels.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = snapshot.levels.get(i).items.size();
+        }
+        return "RequirementIndex{" +
+                "trees=" + Arrays.toString(sizes) +
+                ", buffer=" + snapshot.buffer.size() +
+                '}';
+    }
+
+    /**
+     * A requirement and its payload. Two entries are never equal, even if they have the same requirement and payload.
+     *
+     * @param <T> the type of the payload
+     */
+    public static class Entry<T> {
+        private final Requirement requirement;
+        private final T payload;
+        private final CompiledRequirement compiled;
+
+        /**
+         * @param requirement the requirement
+         * @param payload the payload
+         *
+         * @throws SemverException if the requirement is not made of ranges combined with AND and OR operators
+         */
+        public Entry(Requirement requirement, T payload) {
+            this.requirement = requirement;
+            this.payload = payload;
+            this.compiled = requirement.compile();
+        }
+
+        public Requirement getRequirement() {
+            return requirement;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        @Override public String toString() {
+            return this.requirement + " => " + this.payload;
+        }
+    }
+
+    /**
+     * The state of an entry in the trees: an entry that is removed and added again gets a new item.
+     */
+    private static class Item<T> {
+        private final Entry<T> entry;
+        private volatile boolean removed;
+
+        Item(Entry<T> entry) {
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * An immutable tree of items, with a tree of intervals per kind of version.
+     */
+    private static class Level<T> {
+        private final List<Item<T>> items;
+        private final VersionIntervalTree<Item<T>>[] trees;
+
+        @SuppressWarnings("unchecked")
+        Level(List<Item<T>> items) {
+            this.items = items;
+            this.trees = (VersionIntervalTree<Item<T>>[]) new VersionIntervalTree<?>[CompiledRequirement.SET_COUNT];
+            for (int index = 0; index < CompiledRequirement.SET_COUNT; index++) {
+                int same = this.sameTree(index);
+                if (same >= 0) {
+                    this.trees[index] = this.trees[same];
+                    continue;
+                }
+                List<VersionIntervalTree.Record<Item<T>>> records = new ArrayList<VersionIntervalTree.Record<Item<T>>>();
+                for (Item<T> item : items) {
+                    VersionIntervalSet set = item.entry.compiled.getSet(index);
+                    for (int i = 0; i < set.size(); i++) {
+                        records.add(new VersionIntervalTree.Record<Item<T>>(set.get(i), item));
+                    }
+                }
+                if (!records.isEmpty()) {
+                    this.trees[index] = new VersionIntervalTree<Item<T>>(records, records);
+                }
+            }
+        }
+
+        /**
+         * Merges two levels. Their trees are already sorted, so they are merged in linear time before being built.
+         *
+         * @param items the items of the levels that are not removed
+         */
+        @SuppressWarnings("unchecked")
+        Level(List<Item<T>> items, Level<T> level1, Level<T> level2) {
+            this.items = items;
+            this.trees = (VersionIntervalTree<Item<T>>[]) new VersionIntervalTree<?>[CompiledRequirement.SET_COUNT];
+            for (int index = 0; index < CompiledRequirement.SET_COUNT; index++) {
+                int same = this.sameTree(index);
+                if (same >= 0) {
+                    this.trees[index] = this.trees[same];
+                    continue;
+                }
+                List<VersionIntervalTree.Record<Item<T>>> byLower = new ArrayList<VersionIntervalTree.Record<Item<T>>>();
+                List<VersionIntervalTree.Record<Item<T>>> byUpper = new ArrayList<VersionIntervalTree.Record<Item<T>>>();
+                for (Level<T> level : Arrays.asList(level1, level2)) {
+                    if (level.trees[index] != null) {
+                        addRecords(level.trees[index].getRecordsByLower(), byLower);
+                        addRecords(level.trees[index].getRecordsByUpper(), byUpper);
+                    }
+                }
+                if (!byLower.isEmpty()) {
+                    this.trees[index] = new VersionIntervalTree<Item<T>>(byLower, byUpper);
+                }
+            }
+        }
+
+        private static <T> void addRecords(List<VersionIntervalTree.Record<Item<T>>> records,
+                                           List<VersionIntervalTree.Record<Item<T>>> result) {
+            for (VersionIntervalTree.Record<Item<T>> record : records) {
+                if (!record.value.removed) {
+                    result.add(record);
+                }
+            }
+        }
+
+        /**
+         * @return a lower index whose sets are the same as the ones of the index for all the items (they often are,
+         * see {@link CompiledRequirement}), or -1
+         */
+        private int sameTree(int index) {
+            for (int same = 0; same < index; same++) {
+                boolean found = true;
+                for (Item<T> item : this.items) {
+                    if (item.entry.compiled.getSet(same) != item.entry.compiled.getSet(index)) {
+                        found = false;
+                        break;
+                    }
+                }
+                if (found) {
+                    return same;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static class Snapshot<T> {
+        // By decreasing size
+        private final List<Level<T>> levels;
+        private final List<Item<T>> buffer;
+
+        Snapshot(List<Level<T>> levels, List<Item<T>> buffer) {
+            this.levels = levels;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe table of canonical requirements, used by {@link Requirement#of(String, SemverType)} (and so by the
+ * build methods of {@link Requirement} and by {@link Semver#satisfies(String)}) once it is enabled with
+ * {@link Requirement#setInterner(RequirementInterner)}.
+ *
+ * Interning a requirement returns an equal requirement whose versions, ranges and sub-requirements are shared with all
+ * the requirements interned before: "^1.2.3" and "&gt;=1.2.3 &lt;1.3.0" share their "&gt;=1.2.3" range, and
+ * "^1.0.0 || ^2.0.0" and "^2.0.0 || ^3.0.0" share their "^2.0.0" sub-requirement. Identical requirements are the same
+ * instance, so comparing them is a reference check.
+ *
+ * Unlike {@link RequirementCache}, the interner is not bounded: it keeps all the instances until it is cleared.
+ */
+public class RequirementInterner {
+    private final ConcurrentMap<VersionKey, Semver> versions = new ConcurrentHashMap<VersionKey, Semver>();
+    private final ConcurrentMap<RangeKey, Range> ranges = new ConcurrentHashMap<RangeKey, Range>();
+    private final ConcurrentMap<RequirementKey, Requirement> requirements =
+            new ConcurrentHashMap<RequirementKey, Requirement>();
+
+    /**
+     * Returns the canonical instance of a requirement. The requirements that are instances of a subclass of
+     * {@link Requirement} are returned as is, but their sub-requirements are not shared either.
+     *
+     * @param requirement the requirement to intern
+     *
+     * @return an equal requirement that shares its parts with the other interned requirements
+     */
+    public Requirement intern(Requirement requirement) {
+        if (requirement == null || requirement.getClass() != Requirement.class) {
+            return requirement;
+        }
+        // The children are interned first, so the requirements can be looked up by the identity of their children
+        Range range = this.intern(requirement.range);
+        Requirement req1 = this.intern(requirement.req1);
+        Requirement req2 = this.intern(requirement.req2);
+        RequirementKey key = new RequirementKey(range, req1, requirement.op, req2, requirement.andRangeCount > 0);
+        Requirement interned = this.requirements.get(key);
+        if (interned == null) {
+            Requirement candidate = requirement.withChildren(range, req1, req2);
+            interned = this.requirements.putIfAbsent(key, candidate);
+            if (interned == null) {
+                interned = candidate;
+            }
+        }
+        return interned;
+    }
+
+    /**
+     * Returns the canonical instance of a range.
+     *
+     * @param range the range to intern
+     *
+     * @return an equal range that shares its version with the other interned ranges
+     */
+    public Range intern(Range range) {
+        if (range == null || range.getClass() != Range.class) {
+            return range;
+        }
+        Semver version = this.intern(range.version);
+        RangeKey key = new RangeKey(version, range.op);
+        Range interned = this.ranges.get(key);
+        if (interned == null) {
+            Range candidate = version == range.version ? range : new Range(version, range.op);
+            interned = this.ranges.putIfAbsent(key, candidate);
+            if (interned == null) {
+                interned = candidate;
+            }
+        }
+        return interned;
+    }
+
+    private Semver intern(Semver version) {
+        if (version == null) {
+            return null;
+        }
+        // Semver.equals() ignores the type and the original value, but they can change how a version is used
+        VersionKey key = new VersionKey(version.getType(), version.getOriginalValue());
+        Semver interned = this.versions.putIfAbsent(key, version);
+        return interned != null ? interned : version;
+    }
+
+    /**
+     * Removes all the instances from the interner. The requirements interned before are still valid, but are not
+     * shared with the ones interned after.
+     */
+    public void clear() {
+        this.requirements.clear();
+        this.ranges.clear();
+        this.versions.clear();
+    }
+
+    /**
+     * @return the number of distinct requirements and sub-requirements in the interner
+     */
+    public int size() {
+        return this.requirements.size();
+    }
+
+    @Override public String toString() {
+        return "RequirementInterner{" +
+                "requirements=" + this.requirements.size() +
+                ", ranges=" + this.ranges.size() +
+                ", versions=" + this.versions.size() +
+                '}';
+    }
+
+    private static class VersionKey {
+        private final SemverType type;
+        private final String value;
+
+        VersionKey(SemverType type, String value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof VersionKey)) return false;
+            VersionKey that = (VersionKey) o;
+            return type == that.type && value.equals(that.value);
+        }
+
+        @Override public int hashCode() {
+            return 31 * type.ordinal() + value.hashCode();
+        }
+    }
+
+    /**
+     * The versions of the keys are canonical, so they are compared by reference.
+     */
+    private static class RangeKey {
+        private final Semver version;
+        private final Range.RangeOperator op;
+
+        RangeKey(Semver version, Range.RangeOperator op) {
+            this.version = version;
+            this.op = op;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RangeKey)) return false;
+            RangeKey that = (RangeKey) o;
+            return version == that.version && op == that.op;
+        }
+
+        @Override public int hashCode() {
+            return 31 * System.identityHashCode(version) + (op == null ? 0 : op.ordinal());
+        }
+    }
+
+    /**
+     * The range and the children of the keys are canonical, so they are compared by reference.
+     */
+    private static class RequirementKey {
+        private final Range range;
+        private final Requirement req1;
+        private final Requirement.RequirementOperator op;
+        private final Requirement req2;
+        // An AND of ranges checks its pre-releases as a group, unlike an intersection with the same children
+        private final boolean group;
+
+        RequirementKey(Range range, Requirement req1, Requirement.RequirementOperator op, Requirement req2,
+                       boolean group) {
+            this.range = range;
+            this.req1 = req1;
+            this.op = op;
+            this.req2 = req2;
+            this.group = group;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RequirementKey)) return false;
+            RequirementKey that = (RequirementKey) o;
+            return range == that.range && req1 == that.req1 && op == that.op && req2 == that.req2 &&
+                    group == that.group;
+        }
+
+        @Override public int hashCode() {
+            int hash = System.identityHashCode(range);
+            hash = 31 * hash + System.identityHashCode(req1);
+            hash = 31 * hash + (op == null ? 0 : op.ordinal());
+            hash = 31 * hash + System.identityHashCode(req2);
+            return 31 * hash + (group ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Requirement.RequirementOperator;
+import com.vdurmont.semver4j.Semver.SemverType;
+import com.vdurmont.semver4j.Tokenizer.Token;
+import com.vdurmont.semver4j.Tokenizer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive descent parser of the NPM and Cocoapods requirements, it builds the requirement tree in one pass over the
+ * tokens:
+ *
+ *     requirement = and ( "||" and )*
+ *     and         = term ( AND term )*
+ *     term        = "(" requirement ")" | unary version | version [ "-" version ]
+ *     unary       = "~" | "~>" | "^" | "=" | "<" | "<=" | ">" | ">="
+ *
+ * The chains of AND and OR are built as balanced trees, "a || b || c || d" is "(a || b) || (c || d)".
+ */
+class RequirementParser {
+    private final List<Token> tokens;
+    private final SemverType type;
+    private int position;
+
+    private RequirementParser(List<Token> tokens, SemverType type) {
+        this.tokens = tokens;
+        this.type = type;
+    }
+
+    static Requirement parse(String requirement, SemverType type) {
+        RequirementParser parser = new RequirementParser(Tokenizer.tokenize(requirement, type), type);
+        Requirement result = parser.parseOr();
+        if (parser.position < parser.tokens.size()) {
+            // An unmatched closing parenthesis or a term that is not joined to the previous one
+            throw invalid();
+        }
+        return result;
+    }
+
+    private Requirement parseOr() {
+        Requirement first = this.parseAnd();
+        if (!this.accept(TokenType.OR)) {
+            return first;
+        }
+        List<Requirement> alternatives = new ArrayList<Requirement>();
+        alternatives.add(first);
+        do {
+            alternatives.add(this.parseAnd());
+        } while (this.accept(TokenType.OR));
+        return join(alternatives, 0, alternatives.size(), RequirementOperator.OR);
+    }
+
+    private Requirement parseAnd() {
+        Requirement first = this.parseTerm();
+        if (!this.accept(TokenType.AND)) {
+            return first;
+        }
+        List<Requirement> terms = new ArrayList<Requirement>();
+        terms.add(first);
+        do {
+            terms.add(this.parseTerm());
+        } while (this.accept(TokenType.AND));
+        return join(terms, 0, terms.size(), RequirementOperator.AND);
+    }
+
+    private Requirement parseTerm() {
+        if (this.position >= this.tokens.size()) {
+            throw invalid();
+        }
+        Token token = this.tokens.get(this.position);
+        switch (token.type) {
+            case OPENING: {
+                this.position++;
+                Requirement requirement = this.parseOr();
+                if (!this.accept(TokenType.CLOSING)) {
+                    throw invalid();
+                }
+                return requirement;
+            }
+            case VERSION: {
+                String version = this.readVersion();
+                if (this.accept(TokenType.HYPHEN)) {
+                    return Requirement.hyphenRequirement(version, this.readVersion(), this.type);
+                }
+                return this.versionRequirement(version);
+            }
+            case EQ:
+                this.position++;
+                return new Requirement(new Range(this.readVersion(), Range.RangeOperator.EQ), null, null, null);
+            case LT:
+                this.position++;
+                return new Requirement(new Range(this.readVersion(), Range.RangeOperator.LT), null, null, null);
+            case LTE:
+                this.position++;
+                return new Requirement(new Range(this.readVersion(), Range.RangeOperator.LTE), null, null, null);
+            case GT:
+                this.position++;
+                return new Requirement(new Range(this.readVersion(), Range.RangeOperator.GT), null, null, null);
+            case GTE:
+                this.position++;
+                return new Requirement(new Range(this.readVersion(), Range.RangeOperator.GTE), null, null, null);
+            case TILDE:
+                this.position++;
+                if (this.type == SemverType.NPM) {
+                    // NPM also accepts "~>", which is tokenized as a tilde followed by a greater than
+                    this.accept(TokenType.GT);
+                }
+                return Requirement.tildeRequirement(this.readVersion(), this.type);
+            case CARET:
+                this.position++;
+                return Requirement.caretRequirement(this.readVersion(), this.type);
+            default:
+                throw invalid();
+        }
+    }
+
+    private Requirement versionRequirement(String value) {
+        if ("*".equals(value) || (this.type == SemverType.NPM && "latest".equals(value))) {
+            // Special case for "*" and "latest" in NPM
+            return new Requirement(new Range("0.0.0", Range.RangeOperator.GTE), null, null, null);
+        }
+        Semver version = new Semver(value, this.type);
+        if (version.getMinor() != null && version.getPatch() != null) {
+            return new Requirement(new Range(version, Range.RangeOperator.EQ), null, null, null);
+        }
+        // If we have a version with a wildcard char (like 1.2.x, 1.2.* or 1.2), we need a tilde requirement
+        return Requirement.tildeRequirement(version, this.type);
+    }
+
+    /**
+     * Reads a version token. Some versions look like version ranges, for example "0.0.1-SNAPSHOT" is tokenized as
+     * [VERSION, HYPHEN, VERSION]: when the token after the hyphen is not a valid version, the three tokens are read as
+     * a single version.
+     */
+    private String readVersion() {
+        if (this.position >= this.tokens.size() || this.tokens.get(this.position).type != TokenType.VERSION) {
+            throw invalid();
+        }
+        String version = this.tokens.get(this.position++).value;
+        if (this.position + 1 < this.tokens.size()
+                && this.tokens.get(this.position).type == TokenType.HYPHEN
+                && this.tokens.get(this.position + 1).type == TokenType.VERSION
+                && !Semver.isValid(this.tokens.get(this.position + 1).value, SemverType.NPM)) {
+            version = version + '-' + this.tokens.get(this.position + 1).value;
+            this.position += 2;
+        }
+        return version;
+    }
+
+    private boolean accept(TokenType tokenType) {
+        if (this.position < this.tokens.size() && this.tokens.get(this.position).type == tokenType) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Joins the requirements into a balanced tree, so that the depth of the tree only grows with the logarithm of the
+     * number of requirements. The grouping does not change the result: an AND chain never contains a group in
+     * parentheses (the tokenizer only inserts an AND between a version and a unary operator), so all its ranges are
+     * checked together, and the alternatives of an OR are checked one by one.
+     */
+    private static Requirement join(List<Requirement> requirements, int from, int to, RequirementOperator op) {
+        if (to - from == 1) {
+            return requirements.get(from);
+        }
+        // The left half is the smallest one, "a b c" is "a (b c)" as with a right-associative operator
+        int middle = from + (to - from) / 2;
+        return new Requirement(null, join(requirements, from, middle, op), op, join(requirements, middle, to, op));
+    }
+
+    private static SemverException invalid() {
+        return new SemverException("Invalid requirement");
+    }
+}
@@ -0,0 +1,334 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Requirement.RequirementOperator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Rewrites a requirement into an equivalent one with as few ranges as possible (see {@link Requirement#simplify()}):
+ * - the bounds of a group that are subsumed by another bound are removed: "&gt;=1.0.0 &gt;=1.2.0 &lt;3.0.0" is
+ *   "&gt;=1.2.0 &lt;3.0.0"
+ * - the alternatives that are included in another one are removed, and the overlapping or adjacent alternatives are
+ *   merged: "1.x || 1.2.x" is "&gt;=1.0.0 &lt;2.0.0", "^1.0.0 || ^2.0.0" is "&gt;=1.0.0 &lt;3.0.0"
+ * - a requirement that no version satisfies is "&lt;0.0.0-0", a requirement that all the versions satisfy is
+ *   "&gt;=0.0.0-0"
+ *
+ * A version with a suffix only satisfies a group if one of its ranges has a suffix and the same main part, and the
+ * missing parts of the NPM requirements are wildcards for the NPM versions only: the ranges that have a suffix or a
+ * missing part are only removed, and the alternatives are only merged, if the requirement keeps exactly the same
+ * versions (checked with {@link CompiledRequirement#isSubsetOf(CompiledRequirement)}).
+ *
+ * The ranges of a group are sorted (the lower bounds, the equalities, then the upper bounds) and so are the
+ * alternatives, so two requirements written with the same bounds have the same simplified string.
+ */
+class RequirementSimplifier {
+    private static final Requirement ALL = new Requirement(new Range("0.0.0-0", Range.RangeOperator.GTE), null, null, null);
+    private static final Requirement NONE = new Requirement(new Range("0.0.0-0", Range.RangeOperator.LT), null, null, null);
+    // Satisfied by all the releases: in a group, it only disallows the pre-releases that the other ranges allow
+    private static final Range RELEASES = new Range("0.0.0", Range.RangeOperator.GTE);
+
+    private static final Comparator<Range> RANGE_COMPARATOR = new Comparator<Range>() {
+        @Override public int compare(Range range1, Range range2) {
+            int cmp = Integer.compare(category(range1), category(range2));
+            if (cmp != 0) return cmp;
+            // The missing parts are compared as zeros, for an order that does not depend on the NPM wildcards
+            cmp = range1.version.withMissingPartsAsZero(Semver.SemverType.STRICT)
+                    .compareTo(range2.version.withMissingPartsAsZero(Semver.SemverType.STRICT));
+            if (cmp != 0) return cmp;
+            cmp = range1.op.compareTo(range2.op);
+            return cmp != 0 ? cmp : range1.toString().compareTo(range2.toString());
+        }
+    };
+
+    private static final Comparator<Requirement> ALTERNATIVE_COMPARATOR = new Comparator<Requirement>() {
+        @Override public int compare(Requirement requirement1, Requirement requirement2) {
+            VersionIntervalSet candidates1 = requirement1.compile().getCandidates();
+            VersionIntervalSet candidates2 = requirement2.compile().getCandidates();
+            int cmp = VersionInterval.compareLowers(candidates1.get(0), candidates2.get(0));
+            if (cmp != 0) return cmp;
+            cmp = VersionInterval.compareUppers(candidates1.get(candidates1.size() - 1), candidates2.get(candidates2.size() - 1));
+            return cmp != 0 ? cmp : requirement1.toString().compareTo(requirement2.toString());
+        }
+    };
+
+    private RequirementSimplifier() {
+    }
+
+    static Requirement simplify(Requirement requirement) {
+        CompiledRequirement compiled = requirement.compile();
+        if (!compiled.intersects(ALL.compile())) {
+            return NONE;
+        } else if (ALL.compile().isSubsetOf(compiled)) {
+            return ALL;
+        }
+
+        List<Requirement> alternatives = new ArrayList<Requirement>();
+        addAlternatives(requirement, alternatives);
+        Collections.sort(alternatives, ALTERNATIVE_COMPARATOR);
+
+        // The alternatives are sorted by lower bound: each one is merged with the previous ones while one includes the
+        // other or while they can be written as a single group
+        List<Requirement> merged = new ArrayList<Requirement>();
+        for (Requirement alternative : alternatives) {
+            Requirement current = alternative;
+            while (!merged.isEmpty()) {
+                Requirement previous = merged.get(merged.size() - 1);
+                if (current.isSubsetOf(previous)) {
+                    current = previous;
+                } else if (!previous.isSubsetOf(current)) {
+                    Requirement hull = hull(previous, current);
+                    if (hull == null || !equivalent(hull, previous.union(current))) {
+                        break;
+                    }
+                    current = hull;
+                }
+                merged.remove(merged.size() - 1);
+            }
+            merged.add(current);
+        }
+        return union(merged, 0, merged.size());
+    }
+
+    /**
+     * Adds the simplified alternatives of a requirement, except the ones that no version satisfies.
+     */
+    private static void addAlternatives(Requirement requirement, List<Requirement> alternatives) {
+        if (requirement.op == RequirementOperator.OR) {
+            addAlternatives(requirement.req1, alternatives);
+            addAlternatives(requirement.req2, alternatives);
+            return;
+        }
+        Requirement alternative;
+        if (requirement.range != null) {
+            alternative = requirement;
+        } else if (requirement.andRangeCount > 0) {
+            alternative = simplifyGroup(requirement);
+        } else {
+            alternative = simplifyIntersection(requirement);
+        }
+        if (alternative.compile().intersects(ALL.compile())) {
+            alternatives.add(alternative);
+        }
+    }
+
+    /**
+     * Simplifies a group of ranges combined with AND.
+     */
+    private static Requirement simplifyGroup(Requirement group) {
+        List<Range> ranges = new ArrayList<Range>();
+        for (Range range : rangesOf(group)) {
+            if (!ranges.contains(range)) {
+                ranges.add(range);
+            }
+        }
+
+        // A bound without suffix nor missing part is only subsumed by the tightest bound: removing it changes
+        // neither the interval nor the pre-releases of the group
+        Range lower = null;
+        Range upper = null;
+        for (Range range : ranges) {
+            if (isFull(range)) {
+                if (isLower(range) && (lower == null || compareLowers(range, lower) > 0)) {
+                    lower = range;
+                } else if (isUpper(range) && (upper == null || compareUppers(range, upper) < 0)) {
+                    upper = range;
+                }
+            }
+        }
+        List<Range> kept = new ArrayList<Range>();
+        for (Range range : ranges) {
+            if (range == lower || range == upper || !isFull(range) || range.version.hasSuffix()
+                    || range.op == Range.RangeOperator.EQ) {
+                kept.add(range);
+            }
+        }
+
+        // The other ranges are only removed if the group keeps the same versions (removing a range may allow the
+        // removal of another one)
+        boolean removed = true;
+        while (removed) {
+            removed = false;
+            for (int i = kept.size() - 1; i >= 0 && kept.size() > 1; i--) {
+                Range range = kept.remove(i);
+                if (equivalent(group(kept), group)) {
+                    removed = true;
+                } else {
+                    kept.add(i, range);
+                }
+            }
+        }
+        Requirement simplified = group(kept);
+        if (kept.size() == 1 && group.range == null && !equivalent(simplified, group)) {
+            // A single range allows all the pre-releases, unlike the group: a second range is needed
+            List<Range> candidates = new ArrayList<Range>();
+            candidates.add(RELEASES);
+            candidates.addAll(ranges);
+            for (Range range : candidates) {
+                if (!kept.contains(range)) {
+                    Requirement pair = group(Arrays.asList(kept.get(0), range));
+                    if (equivalent(pair, group)) {
+                        return pair;
+                    }
+                }
+            }
+            return group;
+        }
+        return simplified;
+    }
+
+    /**
+     * Simplifies an AND that contains something else than ranges, as the intersections (each side is checked on its
+     * own).
+     */
+    private static Requirement simplifyIntersection(Requirement requirement) {
+        Requirement requirement1 = simplify(requirement.req1);
+        Requirement requirement2 = simplify(requirement.req2);
+        if (requirement1 == ALL) {
+            return requirement2;
+        } else if (requirement2 == ALL) {
+            return requirement1;
+        }
+        Requirement intersection = requirement1.intersect(requirement2);
+        Range[] ranges1 = rangesOf(requirement1);
+        Range[] ranges2 = rangesOf(requirement2);
+        if (ranges1 != null && ranges2 != null) {
+            List<Range> ranges = new ArrayList<Range>(Arrays.asList(ranges1));
+            ranges.addAll(Arrays.asList(ranges2));
+            // The ranges may be checked as a group if it has the same versions
+            Requirement group = simplifyGroup(group(ranges));
+            if (equivalent(group, intersection)) {
+                return group;
+            }
+        }
+        return intersection;
+    }
+
+    /**
+     * @return a group of the lower bounds of the first alternative and of the upper bounds of the second one, or null
+     * if one of them is not a group of bounds
+     */
+    private static Requirement hull(Requirement requirement1, Requirement requirement2) {
+        Range[] ranges1 = rangesOf(requirement1);
+        Range[] ranges2 = rangesOf(requirement2);
+        if (ranges1 == null || ranges2 == null) {
+            return null;
+        }
+        List<Range> ranges = new ArrayList<Range>();
+        for (Range range : ranges1) {
+            if (range.op == Range.RangeOperator.EQ) {
+                return null;
+            } else if (isLower(range)) {
+                ranges.add(range);
+            }
+        }
+        for (Range range : ranges2) {
+            if (range.op == Range.RangeOperator.EQ) {
+                return null;
+            } else if (isUpper(range)) {
+                ranges.add(range);
+            }
+        }
+        return ranges.isEmpty() ? null : simplifyGroup(group(ranges));
+    }
+
+    private static Range[] rangesOf(Requirement requirement) {
+        if (requirement.range != null) {
+            return new Range[] { requirement.range };
+        }
+        return requirement.andRanges();
+    }
+
+    /**
+     * @return the ranges combined with AND, in the canonical order, as a balanced tree
+     */
+    private static Requirement group(List<Range> ranges) {
+        if (ranges.isEmpty()) {
+            return ALL;
+        }
+        Range[] sorted = ranges.toArray(new Range[ranges.size()]);
+        Arrays.sort(sorted, RANGE_COMPARATOR);
+        return group(sorted, 0, sorted.length);
+    }
+
+    private static Requirement group(Range[] ranges, int from, int to) {
+        if (to - from == 1) {
+            return new Requirement(ranges[from], null, null, null);
+        }
+        int middle = from + (to - from) / 2;
+        return new Requirement(null, group(ranges, from, middle), RequirementOperator.AND, group(ranges, middle, to));
+    }
+
+    /**
+     * Joins the sorted alternatives into a balanced OR. When all the versions of the left side are lower than the
+     * versions of the right side, a version is only checked against one of them.
+     */
+    private static Requirement union(List<Requirement> alternatives, int from, int to) {
+        if (to - from == 1) {
+            return alternatives.get(from);
+        }
+        int middle = from + (to - from) / 2;
+        Requirement left = union(alternatives, from, middle);
+        Requirement right = union(alternatives, middle, to);
+        VersionIntervalSet leftCandidates = left.compile().getCandidates();
+        VersionInterval last = leftCandidates.get(leftCandidates.size() - 1);
+        VersionInterval start = right.compile().getCandidates().get(0);
+        if (last.upper != null && start.lower != null) {
+            int cmp = last.upper.compareTo(start.lower);
+            if (cmp < 0 || (cmp == 0 && !(last.upperInclusive && start.lowerInclusive))) {
+                return Requirement.sortedUnion(left, right, start);
+            }
+        }
+        return new Requirement(null, left, RequirementOperator.OR, right);
+    }
+
+    private static boolean equivalent(Requirement requirement1, Requirement requirement2) {
+        CompiledRequirement compiled1 = requirement1.compile();
+        CompiledRequirement compiled2 = requirement2.compile();
+        return compiled1.isSubsetOf(compiled2) && compiled2.isSubsetOf(compiled1);
+    }
+
+    /**
+     * @return 0 for the lower bounds, 1 for the equalities and 2 for the upper bounds
+     */
+    private static int category(Range range) {
+        return isLower(range) ? 0 : (isUpper(range) ? 2 : 1);
+    }
+
+    private static boolean isLower(Range range) {
+        return range.op == Range.RangeOperator.GT || range.op == Range.RangeOperator.GTE;
+    }
+
+    private static boolean isUpper(Range range) {
+        return range.op == Range.RangeOperator.LT || range.op == Range.RangeOperator.LTE;
+    }
+
+    private static boolean isFull(Range range) {
+        return range.version.hasMinor() && range.version.hasPatch();
+    }
+
+    /**
+     * @return a positive integer if the first lower bound is the tightest one
+     */
+    private static int compareLowers(Range range1, Range range2) {
+        int cmp = range1.version.compareTo(range2.version);
+        if (cmp != 0 || range1.op == range2.op) {
+            return cmp;
+        }
+        return range1.op == Range.RangeOperator.GT ? 1 : -1;
+    }
+
+    /**
+     * @return a negative integer if the first upper bound is the tightest one
+     */
+    private static int compareUppers(Range range1, Range range2) {
+        int cmp = range1.version.compareTo(range2.version);
+        if (cmp != 0 || range1.op == range2.op) {
+            return cmp;
+        }
+        return range1.op == Range.RangeOperator.LT ? -1 : 1;
+    }
+}
@@ -1,5 +1,7 @@
 package com.vdurmont.semver4j;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -7,133 +9,403 @@ import java.util.Objects;
  * (see http://semver.org)
  */
 public class Semver implements Comparable<Semver> {
+    // Memory footprint matters: applications may keep millions of versions in memory.
+    // The minor and patch parts use ABSENT when they are missing, each suffix identifier is encoded in a long (see
+    // SemverParser) and release versions share the same empty suffix. The suffix tokens and the build are extracted
+    // from the value on demand. The versions created from their parts without suffix nor build only format their
+    // value when it is requested.
+    private static final int ABSENT = SemverParser.ABSENT;
+    private static final String[] LOWEST_SUFFIX = { "0" };
+
+    /**
+     * Value of {@link #getPackedKey()} for the versions that cannot be packed
+     */
+    public static final long NOT_PACKABLE = -1;
+    private static final int PACKED_MAJOR_BITS = 20;
+    private static final int PACKED_MINOR_BITS = 20;
+    private static final int PACKED_PATCH_BITS = 22;
+    private static final long PACKED_RELEASE_FLAG = 1;
+
     private final String originalValue;
-    private final String value;
-    private final Integer major;
-    private final Integer minor;
-    private final Integer patch;
-    private final String[] suffixTokens;
-    private final String build;
+    // Lazily computed for some versions created from their parts. The lazy fields of this package are not volatile:
+    // as for String.hashCode(), concurrent threads may both compute them, which is harmless because the results are
+    // equal and immutable.
+    private String value;
+    private final int major;
+    private final int minor;
+    private final int patch;
+    private final long[] suffix;
     private final SemverType type;
+    // Most versions are compared with a single long comparison, see getPackedKey()
+    private final long packedKey;
+
+    private static volatile SemverCache cache;
 
     public Semver(String value) {
         this(value, SemverType.STRICT);
     }
 
     public Semver(String value, SemverType type) {
+        this(type, new SemverParser(value, type, true));
+    }
+
+    private Semver(SemverType type, SemverParser parser) {
+        if (parser.error != null) {
+            throw new SemverException(parser.errorMessage());
+        }
+        this.value = parser.value();
+        this.originalValue = parser.originalValue();
+        this.type = type;
+        this.major = parser.major;
+        this.minor = parser.minor;
+        this.patch = parser.patch;
+        this.suffix = parser.suffix;
+        this.packedKey = pack(this.major, this.minor, this.patch, this.suffix.length > 0);
+    }
+
+    private Semver(SemverType type, int major, int minor, int patch, long[] suffix, String value) {
         this.originalValue = value;
+        this.value = value;
         this.type = type;
-        value = value.trim();
-        if (type == SemverType.NPM && (value.startsWith("v") || value.startsWith("V"))) {
-            value = value.substring(1).trim();
+        this.major = major;
+        this.minor = minor;
+        this.patch = patch;
+        this.suffix = suffix;
+        this.packedKey = pack(major, minor, patch, suffix.length > 0);
+    }
+
+    /**
+     * Creates a version from its parts, without formatting and parsing a string.
+     *
+     * @param type the version system of the version
+     * @param major the major part
+     * @param minor the minor part, or null if missing (not allowed in strict mode)
+     * @param patch the patch part, or null if missing (not allowed in strict mode, nor when the minor part is missing)
+     * @param suffixTokens the suffix tokens, or null
+     * @param build the build, or null
+     *
+     * @return the version
+     *
+     * @throws SemverException if a part is invalid, or if the version would not be read the same way from its value
+     */
+    public static Semver create(SemverType type, int major, Integer minor, Integer patch, String[] suffixTokens, String build) {
+        int minorPart = minor != null ? minor : ABSENT;
+        int patchPart = patch != null ? patch : ABSENT;
+        if (major < 0 || minorPart < ABSENT || patchPart < ABSENT) {
+            throw new SemverException("The version parts cannot be negative: " + format(major, minorPart, patchPart, null, null));
         }
-        this.value = value;
-        String[] tokens;
+        if (minorPart == ABSENT && patchPart != ABSENT) {
+            throw new SemverException("The patch part requires a minor part.");
+        }
+        if (type == SemverType.STRICT && (minorPart == ABSENT || patchPart == ABSENT)) {
+            throw new SemverException("The minor and patch parts are required in strict mode.");
+        }
+        if (!areCanonical(suffixTokens, build)) {
+            throw new SemverException("Invalid suffix or build: " + format(major, minorPart, patchPart, suffixTokens, build));
+        }
+        return createFromParts(type, major, minorPart, patchPart, suffixTokens, build);
+    }
 
-        if (hasPreRelease(value)) {
-            tokens = value.split("-", 2);
-        } else {
-            tokens = new String[] { value };
+    /**
+     * Creates a version from its parts. The versions that would not be read the same way from their value (for example
+     * with a negative part, or a plus sign in the build) are formatted and parsed, as they always were.
+     */
+    private static Semver createFromParts(SemverType type, int major, int minor, int patch, String[] suffixTokens, String build) {
+        boolean validParts = major >= 0 && minor >= ABSENT && patch >= ABSENT && (minor != ABSENT || patch == ABSENT)
+                && (type != SemverType.STRICT || (minor != ABSENT && patch != ABSENT));
+        if (!validParts || !areCanonical(suffixTokens, build)) {
+            return new Semver(format(major, minor, patch, suffixTokens, build), type);
         }
+        return createFromValidParts(type, major, minor, patch, suffixTokens, build);
+    }
 
-        String build = null;
-        Integer minor = null;
-        Integer patch = null;
-        try {
-            String[] mainTokens;
-            if (tokens.length == 1) {
-                // The build version may be in the main tokens
-                if (tokens[0].endsWith("+")) {
-                    throw new SemverException("The build cannot be empty.");
-                }
-                String[] tmp = tokens[0].split("\\+");
-                mainTokens = tmp[0].split("\\.");
-                if (tmp.length == 2) {
-                    build = tmp[1];
-                }
-            } else {
-                mainTokens = tokens[0].split("\\.");
+    private static Semver createFromValidParts(SemverType type, int major, int minor, int patch, String[] suffixTokens, String build) {
+        if ((suffixTokens == null || suffixTokens.length == 0) && build == null) {
+            // The value will only be formatted if it is requested
+            return new Semver(type, major, minor, patch, SemverParser.NO_SUFFIX, null);
+        }
+        StringBuilder sb = appendMainPart(new StringBuilder(), major, minor, patch);
+        long[] suffix = SemverParser.NO_SUFFIX;
+        if (suffixTokens != null && suffixTokens.length > 0) {
+            suffix = new long[suffixTokens.length];
+            for (int i = 0; i < suffixTokens.length; i++) {
+                sb.append(i == 0 ? '-' : '.');
+                int start = sb.length();
+                sb.append(suffixTokens[i]);
+                suffix[i] = SemverParser.parseIdentifier(sb, 0, start, sb.length());
             }
+        }
+        if (build != null) {
+            sb.append('+').append(build);
+        }
+        return new Semver(type, major, minor, patch, suffix, sb.toString());
+    }
 
-            try {
-                this.major = Integer.valueOf(mainTokens[0]);
-            } catch (NumberFormatException e) {
-                throw new SemverException("Invalid version (no major version): " + value);
-            } catch (IndexOutOfBoundsException e) {
-                throw new SemverException("Invalid version (no major version): " + value);
-            }
+    /**
+     * Creates a version read from a sort key. Its suffix tokens come from a parsed version, but they may not be read
+     * the same way once the build is removed (like a token ending with a space), so they are used as they are.
+     */
+    static Semver createFromSortKey(SemverType type, int major, int minor, int patch, String[] suffixTokens) {
+        return createFromValidParts(type, major, minor, patch, suffixTokens, null);
+    }
 
-            try {
-                minor = Integer.valueOf(mainTokens[1]);
-            } catch (IndexOutOfBoundsException e) {
-                if (type == SemverType.STRICT) {
-                    throw new SemverException("Invalid version (no minor version): " + value);
-                }
-            } catch (NumberFormatException e) {
-                if (type != SemverType.NPM || (!"x".equalsIgnoreCase(mainTokens[1]) && !"*".equals(mainTokens[1]))) {
-                    throw new SemverException("Invalid version (no minor version): " + value);
-                }
-            }
-            try {
-                patch = Integer.valueOf(mainTokens[2]);
-            } catch (IndexOutOfBoundsException e) {
-                if (type == SemverType.STRICT) {
-                    throw new SemverException("Invalid version (no patch version): " + value);
-                }
-            } catch (NumberFormatException e) {
-                if (type != SemverType.NPM || (!"x".equalsIgnoreCase(mainTokens[2]) && !"*".equals(mainTokens[2]))) {
-                    throw new SemverException("Invalid version (no patch version): " + value);
+    /**
+     * Creates the loose version "major.minor.patch", the same as if it was parsed from this value (a negative part is
+     * rejected by the parser).
+     */
+    static Semver createRelease(int major, int minor, int patch) {
+        return createFromParts(SemverType.LOOSE, major, minor, patch, null, null);
+    }
+
+    /**
+     * Creates a strict version used as the bound of an interval: either the release "major.minor.patch", or the lowest
+     * of its pre-releases "major.minor.patch-0" (no version with the same main part is lower than this one).
+     */
+    static Semver createBound(int major, int minor, int patch, boolean lowestPreRelease) {
+        return createFromValidParts(SemverType.STRICT, major, minor, patch, lowestPreRelease ? LOWEST_SUFFIX : null, null);
+    }
+
+    /**
+     * @return true if the parser would read exactly the same suffix tokens and build from the formatted version
+     */
+    private static boolean areCanonical(String[] suffixTokens, String build) {
+        String last = null;
+        if (suffixTokens != null) {
+            for (String token : suffixTokens) {
+                if (token.isEmpty() || token.indexOf('.') >= 0 || token.indexOf('+') >= 0) {
+                    return false;
                 }
+                last = token;
             }
-        } catch (NumberFormatException e) {
-            throw new SemverException("The version is invalid: " + value);
-        } catch (IndexOutOfBoundsException e) {
-            throw new SemverException("The version is invalid: " + value);
         }
-        this.minor = minor;
-        this.patch = patch;
-
-        String[] suffix = new String[0];
-        try {
-            // The build version may be in the suffix tokens
-            if (tokens[1].endsWith("+")) {
-                throw new SemverException("The build cannot be empty.");
-            }
-            String[] tmp = tokens[1].split("\\+");
-            if (tmp.length == 2) {
-                suffix = tmp[0].split("\\.");
-                build = tmp[1];
-            } else {
-                suffix = tokens[1].split("\\.");
+        if (build != null) {
+            if (build.isEmpty() || build.indexOf('+') >= 0) {
+                return false;
             }
-        } catch (IndexOutOfBoundsException ignored) {
+            last = build;
         }
-        this.suffixTokens = suffix;
+        // The parser trims the version
+        return last == null || last.charAt(last.length() - 1) > ' ';
+    }
 
-        this.build = build;
+    private static String format(int major, int minor, int patch, String[] suffixTokens, String build) {
+        return appendSuffixAndBuild(appendMainPart(new StringBuilder(), major, minor, patch), suffixTokens, build).toString();
+    }
 
-        this.validate(type);
+    private static StringBuilder appendSuffixAndBuild(StringBuilder sb, String[] suffixTokens, String build) {
+        if (suffixTokens != null) {
+            boolean first = true;
+            for (String suffixToken : suffixTokens) {
+                if (first) {
+                    sb.append("-");
+                    first = false;
+                } else {
+                    sb.append(".");
+                }
+                sb.append(suffixToken);
+            }
+        }
+        if (build != null) {
+            sb.append("+").append(build);
+        }
+        return sb;
     }
 
-    private void validate(SemverType type) {
-        if (this.minor == null && type == SemverType.STRICT) {
-            throw new SemverException("Invalid version (no minor version): " + value);
+    private static StringBuilder appendMainPart(StringBuilder sb, int major, int minor, int patch) {
+        sb.append(major);
+        if (minor != ABSENT) {
+            sb.append('.').append(minor);
         }
-        if (this.patch == null && type == SemverType.STRICT) {
-            throw new SemverException("Invalid version (no patch version): " + value);
+        if (patch != ABSENT) {
+            sb.append('.').append(patch);
         }
+        return sb;
+    }
+
+    /**
+     * Returns a STRICT version, shared with the other callers when the version is cached.
+     *
+     * @see #of(String, SemverType)
+     *
+     * @param value the version as a string
+     *
+     * @return the version
+     */
+    public static Semver of(String value) {
+        return of(value, SemverType.STRICT);
+    }
+
+    /**
+     * Returns a version, shared with the other callers when the version is cached. Versions are immutable, so the
+     * instances returned by this method can be used exactly like the ones created with the constructor. The cache is
+     * disabled by default: without {@link #setCache(SemverCache)}, this method is the same as the constructor.
+     *
+     * @see #setCache(SemverCache)
+     *
+     * @param value the version as a string
+     * @param type the version system used to parse the version
+     *
+     * @return the version
+     *
+     * @throws SemverException if the version is invalid
+     */
+    public static Semver of(String value, SemverType type) {
+        SemverCache cache = Semver.cache;
+        return cache != null ? cache.get(value, type) : new Semver(value, type);
     }
 
-    private boolean hasPreRelease(String version) {
+    /**
+     * Parses a version without throwing any exception, which is much faster than catching a {@link SemverException}
+     * when many versions are invalid.
+     *
+     * @param value the version as a string
+     * @param type the version system used to parse the version
+     *
+     * @return the version, or the reason why it is invalid
+     */
+    public static SemverParseResult tryParse(CharSequence value, SemverType type) {
+        SemverParser parser = new SemverParser(value, type, true);
+        return new SemverParseResult(parser.error == null ? new Semver(type, parser) : null, parser);
+    }
 
-        int firstIndexOfPlus = value.indexOf("+");
-        int firstIndexOfHyphen = value.indexOf("-");
+    /**
+     * Parses a version from any sequence of chars (a StringBuilder, a CharBuffer...). The only String created is the
+     * value of the version (and the original value if it had to be trimmed).
+     *
+     * @param value the version
+     * @param type the version system used to parse the version
+     *
+     * @return the version
+     *
+     * @throws SemverException if the version is invalid
+     */
+    public static Semver parse(CharSequence value, SemverType type) {
+        return new Semver(type, new SemverParser(value, type, true));
+    }
 
-        if (firstIndexOfHyphen == -1) {
-            return false;
-        }
+    /**
+     * Parses a version from a part of an array of chars.
+     *
+     * @see #parse(CharSequence, SemverType)
+     *
+     * @param chars the array containing the version
+     * @param offset the index of the first char of the version
+     * @param length the number of chars of the version
+     * @param type the version system used to parse the version
+     *
+     * @return the version
+     *
+     * @throws SemverException if the version is invalid
+     */
+    public static Semver parse(char[] chars, int offset, int length, SemverType type) {
+        return parse(CharSequences.of(chars, offset, length), type);
+    }
+
+    /**
+     * Parses a version from a part of an array of ASCII bytes.
+     *
+     * @see #parse(CharSequence, SemverType)
+     *
+     * @param bytes the array containing the version
+     * @param offset the index of the first byte of the version
+     * @param length the number of bytes of the version
+     * @param type the version system used to parse the version
+     *
+     * @return the version
+     *
+     * @throws SemverException if the version is invalid
+     */
+    public static Semver parse(byte[] bytes, int offset, int length, SemverType type) {
+        return parse(CharSequences.of(bytes, offset, length), type);
+    }
+
+    /**
+     * Parses a version from a part of a buffer of ASCII bytes. The position and the limit of the buffer are not
+     * changed.
+     *
+     * @see #parse(CharSequence, SemverType)
+     *
+     * @param buffer the buffer containing the version
+     * @param offset the absolute index of the first byte of the version
+     * @param length the number of bytes of the version
+     * @param type the version system used to parse the version
+     *
+     * @return the version
+     *
+     * @throws SemverException if the version is invalid
+     */
+    public static Semver parse(ByteBuffer buffer, int offset, int length, SemverType type) {
+        return parse(CharSequences.of(buffer, offset, length), type);
+    }
 
-        return firstIndexOfPlus == -1 || firstIndexOfHyphen < firstIndexOfPlus;
+    /**
+     * Checks if a version is valid, without creating it.
+     *
+     * @param value the version as a string
+     * @param type the version system used to parse the version
+     *
+     * @return true if the {@link Semver} constructor accepts the version
+     */
+    public static boolean isValid(CharSequence value, SemverType type) {
+        return new SemverParser(value, type, false).error == null;
+    }
+
+    /**
+     * @see #isValid(CharSequence, SemverType)
+     *
+     * @param chars the array containing the version
+     * @param offset the index of the first char of the version
+     * @param length the number of chars of the version
+     * @param type the version system used to parse the version
+     *
+     * @return true if the version is valid
+     */
+    public static boolean isValid(char[] chars, int offset, int length, SemverType type) {
+        return isValid(CharSequences.of(chars, offset, length), type);
+    }
+
+    /**
+     * @see #isValid(CharSequence, SemverType)
+     *
+     * @param bytes the array containing the version, in ASCII
+     * @param offset the index of the first byte of the version
+     * @param length the number of bytes of the version
+     * @param type the version system used to parse the version
+     *
+     * @return true if the version is valid
+     */
+    public static boolean isValid(byte[] bytes, int offset, int length, SemverType type) {
+        return isValid(CharSequences.of(bytes, offset, length), type);
+    }
+
+    /**
+     * @see #isValid(CharSequence, SemverType)
+     *
+     * @param buffer the buffer containing the version, in ASCII
+     * @param offset the absolute index of the first byte of the version
+     * @param length the number of bytes of the version
+     * @param type the version system used to parse the version
+     *
+     * @return true if the version is valid
+     */
+    public static boolean isValid(ByteBuffer buffer, int offset, int length, SemverType type) {
+        return isValid(CharSequences.of(buffer, offset, length), type);
+    }
+
+    /**
+     * @return the cache used by {@link #of(String, SemverType)}, or null if the cache is disabled (the default)
+     */
+    public static SemverCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Changes the cache used by {@link #of(String, SemverType)}.
+     *
+     * @param cache the new cache, or null to disable the cache
+     */
+    public static void setCache(SemverCache cache) {
+        Semver.cache = cache;
     }
 
     /**
@@ -148,34 +420,16 @@ public class Semver implements Comparable<Semver> {
     }
 
     /**
-     * Check if the version satisfies a requirement
+     * Check if the version satisfies a requirement, built with the rules of the type of the version
+     *
+     * @see Requirement#setCache(RequirementCache)
      *
      * @param requirement the requirement
      *
      * @return true if the version satisfies the requirement
      */
     public boolean satisfies(String requirement) {
-        Requirement req;
-        switch (this.type) {
-            case STRICT:
-                req = Requirement.buildStrict(requirement);
-                break;
-            case LOOSE:
-                req = Requirement.buildLoose(requirement);
-                break;
-            case NPM:
-                req = Requirement.buildNPM(requirement);
-                break;
-            case COCOAPODS:
-                req = Requirement.buildCocoapods(requirement);
-                break;
-            case IVY:
-                req = Requirement.buildIvy(requirement);
-                break;
-            default:
-                throw new SemverException("Invalid requirement type: " + type);
-        }
-        return this.satisfies(req);
+        return this.satisfies(Requirement.of(requirement, this.type));
     }
 
     /**
@@ -197,50 +451,7 @@ public class Semver implements Comparable<Semver> {
      * @return true if the current version is greater than the provided version
      */
     public boolean isGreaterThan(Semver version) {
-        // Compare the main part
-        if (this.getMajor() > version.getMajor()) return true;
-        else if (this.getMajor() < version.getMajor()) return false;
-
-        if (this.type == SemverType.NPM && version.getMinor() == null) return false;
-
-        int otherMinor = version.getMinor() != null ? version.getMinor() : 0;
-        if (this.getMinor() != null && this.getMinor() > otherMinor) return true;
-        else if (this.getMinor() != null && this.getMinor() < otherMinor) return false;
-
-        if (this.type == SemverType.NPM && version.getPatch() == null) return false;
-
-        int otherPatch = version.getPatch() != null ? version.getPatch() : 0;
-        if (this.getPatch() != null && this.getPatch() > otherPatch) return true;
-        else if (this.getPatch() != null && this.getPatch() < otherPatch) return false;
-
-        // Let's take a look at the suffix
-        String[] tokens1 = this.getSuffixTokens();
-        String[] tokens2 = version.getSuffixTokens();
-
-        // If one of the versions has no suffix, it's greater!
-        if (tokens1.length == 0 && tokens2.length > 0) return true;
-        if (tokens2.length == 0 && tokens1.length > 0) return false;
-
-        // Let's see if one of suffixes is greater than the other
-        int i = 0;
-        while (i < tokens1.length && i < tokens2.length) {
-            int cmp;
-            try {
-                // Trying to resolve the suffix part with an integer
-                int t1 = Integer.valueOf(tokens1[i]);
-                int t2 = Integer.valueOf(tokens2[i]);
-                cmp = t1 - t2;
-            } catch (NumberFormatException e) {
-                // Else, do a string comparison
-                cmp = tokens1[i].compareToIgnoreCase(tokens2[i]);
-            }
-            if (cmp < 0) return false;
-            else if (cmp > 0) return true;
-            i++;
-        }
-
-        // If one of the versions has some remaining suffixes, it's greater
-        return tokens1.length > tokens2.length;
+        return this.compareTo(version) > 0;
     }
 
     /**
@@ -262,7 +473,7 @@ public class Semver implements Comparable<Semver> {
      * @return true if the current version is greater than or equal to the provided version
      */
     public boolean isGreaterThanOrEqualTo(Semver version) {
-        return this.isGreaterThan(version) || this.isEquivalentTo(version);
+        return this.compareTo(version) >= 0;
     }
 
     /**
@@ -284,7 +495,7 @@ public class Semver implements Comparable<Semver> {
      * @return true if the current version is lower than the provided version
      */
     public boolean isLowerThan(Semver version) {
-        return !this.isGreaterThan(version) && !this.isEquivalentTo(version);
+        return this.compareTo(version) < 0;
     }
 
     /**
@@ -306,7 +517,7 @@ public class Semver implements Comparable<Semver> {
      * @return true if the current version is lower than or equal to the provided version
      */
     public boolean isLowerThanOrEqualTo(Semver version) {
-        return !this.isGreaterThan(version);
+        return this.compareTo(version) <= 0;
     }
 
     /**
@@ -328,11 +539,7 @@ public class Semver implements Comparable<Semver> {
      * @return true if the current version equals the provided version (build excluded)
      */
     public boolean isEquivalentTo(Semver version) {
-        // Get versions without build
-        Semver sem1 = this.getBuild() == null ? this : new Semver(this.getValue().replace("+" + this.getBuild(), ""));
-        Semver sem2 = version.getBuild() == null ? version : new Semver(version.getValue().replace("+" + version.getBuild(), ""));
-        // Compare those new versions
-        return sem1.isEqualTo(sem2);
+        return this.compareTo(version) == 0;
     }
 
     /**
@@ -354,10 +561,9 @@ public class Semver implements Comparable<Semver> {
      * @return true if the current version equals the provided version
      */
     public boolean isEqualTo(Semver version) {
-        if (this.type == SemverType.NPM) {
-            if (this.getMajor() != version.getMajor()) return false;
-            if (version.getMinor() == null) return true;
-            if (version.getPatch() == null) return true;
+        if (this.type == SemverType.NPM && (version.minor == ABSENT || version.patch == ABSENT)) {
+            // The missing parts are wildcards
+            return this.compareTo(version) == 0;
         }
 
         return this.equals(version);
@@ -370,8 +576,7 @@ public class Semver implements Comparable<Semver> {
      * @return true if the current version is stable
      */
     public boolean isStable() {
-        return (this.getMajor() != null && this.getMajor() > 0) &&
-                (this.getSuffixTokens() == null || this.getSuffixTokens().length == 0);
+        return this.major > 0 && this.suffix.length == 0;
     }
 
     /**
@@ -395,28 +600,70 @@ public class Semver implements Comparable<Semver> {
      * @return the greatest difference
      */
     public VersionDiff diff(Semver version) {
-        if (!Objects.equals(this.major, version.getMajor())) return VersionDiff.MAJOR;
-        if (!Objects.equals(this.minor, version.getMinor())) return VersionDiff.MINOR;
-        if (!Objects.equals(this.patch, version.getPatch())) return VersionDiff.PATCH;
-        if (!areSameSuffixes(version.getSuffixTokens())) return VersionDiff.SUFFIX;
-        if (!Objects.equals(this.build, version.getBuild())) return VersionDiff.BUILD;
+        if (this.major != version.major) return VersionDiff.MAJOR;
+        if (this.minor != version.minor) return VersionDiff.MINOR;
+        if (this.patch != version.patch) return VersionDiff.PATCH;
+        if (!Arrays.equals(this.getSuffixTokens(), version.getSuffixTokens())) return VersionDiff.SUFFIX;
+        if (!Objects.equals(this.getBuild(), version.getBuild())) return VersionDiff.BUILD;
         return VersionDiff.NONE;
     }
 
-    private boolean areSameSuffixes(String[] suffixTokens) {
-        if (this.suffixTokens == null && suffixTokens == null) return true;
-        else if (this.suffixTokens == null || suffixTokens == null) return false;
-        else if (this.suffixTokens.length != suffixTokens.length) return false;
-        for (int i = 0; i < this.suffixTokens.length; i++) {
-            if (!this.suffixTokens[i].equals(suffixTokens[i])) return false;
-        }
-        return true;
+    /**
+     * Encodes the version into a key that can be sorted without being decoded: the unsigned lexicographic order of
+     * the keys is the order of {@link #compareTo(Semver)}. As for compareTo, the build is ignored, and so are the case
+     * of the suffix tokens and the leading zeros of the numeric suffix tokens. The missing minor and patch parts are
+     * encoded as 0 (so the NPM wildcards are not taken into account).
+     *
+     * @return the sort key of the version
+     */
+    public byte[] toSortKey() {
+        return SemverSortKey.encode(this.major, this.minor, this.patch, this.value, this.suffix);
+    }
+
+    /**
+     * Decodes a STRICT version from a sort key.
+     *
+     * @see #fromSortKey(byte[], SemverType)
+     *
+     * @param key the sort key
+     *
+     * @return the version
+     */
+    public static Semver fromSortKey(byte[] key) {
+        return fromSortKey(key, SemverType.STRICT);
+    }
+
+    /**
+     * Decodes a version from a sort key. The version is the canonical version of all the versions that have this
+     * key: minor and patch parts are present, there is no build, the suffix tokens are in lower case and the numbers
+     * have no leading zeros.
+     *
+     * @see #toSortKey()
+     *
+     * @param key the sort key
+     * @param type the version system of the version
+     *
+     * @return the version
+     *
+     * @throws SemverException if the key is invalid
+     */
+    public static Semver fromSortKey(byte[] key, SemverType type) {
+        return SemverSortKey.decode(key, type);
     }
 
     public Semver toStrict() {
-        Integer minor = this.minor != null ? this.minor : 0;
-        Integer patch = this.patch != null ? this.patch : 0;
-        return Semver.create(SemverType.STRICT, this.major, minor, patch, this.suffixTokens, this.build);
+        return this.withMissingPartsAsZero(SemverType.STRICT);
+    }
+
+    /**
+     * @param type the version system of the new version
+     *
+     * @return a copy of the version where the missing minor and patch parts are 0
+     */
+    Semver withMissingPartsAsZero(SemverType type) {
+        int minor = this.minor != ABSENT ? this.minor : 0;
+        int patch = this.patch != ABSENT ? this.patch : 0;
+        return Semver.createFromParts(type, this.major, minor, patch, this.getSuffixTokens(), this.getBuild());
     }
 
     public Semver withIncMajor() {
@@ -444,15 +691,7 @@ public class Semver implements Comparable<Semver> {
     }
 
     private Semver withInc(int majorInc, int minorInc, int patchInc) {
-        Integer minor = this.minor;
-        Integer patch = this.patch;
-        if (this.minor != null) {
-            minor += minorInc;
-        }
-        if (this.patch != null) {
-            patch += patchInc;
-        }
-        return with(this.major + majorInc, minor, patch, true, true);
+        return with(this.major + majorInc, this.minor + minorInc, this.patch + patchInc, true, true);
     }
 
     public Semver withClearedSuffix() {
@@ -468,82 +707,158 @@ public class Semver implements Comparable<Semver> {
     }
 
     public Semver withSuffix(String suffix) {
-    	return with(this.major, this.minor, this.patch, suffix.split("\\."), this.build);
+    	return with(this.major, this.minor, this.patch, suffix.split("\\."), this.getBuild());
     }
 
     public Semver withBuild(String build) {
-    	return with(this.major, this.minor, this.patch, this.suffixTokens, build);
+    	return with(this.major, this.minor, this.patch, this.getSuffixTokens(), build);
     }
 
     public Semver nextMajor() {
         return with(this.major + 1, 0, 0, false, false);
     }
 
+    /**
+     * @return the next minor version, without suffix nor build
+     *
+     * @throws SemverException if the version has no minor part
+     */
     public Semver nextMinor() {
+        if (this.minor == ABSENT) {
+            throw new SemverException("Cannot increment the minor part of " + this.getValue() + ", it has none");
+        }
         return with(this.major, this.minor + 1, 0, false, false);
     }
 
+    /**
+     * @return the next patch version, without suffix nor build
+     *
+     * @throws SemverException if the version has no patch part
+     */
     public Semver nextPatch() {
+        if (this.patch == ABSENT) {
+            throw new SemverException("Cannot increment the patch part of " + this.getValue() + ", it has none");
+        }
         return with(this.major, this.minor, this.patch + 1, false, false);
     }
 
-    private Semver with(int major, Integer minor, Integer patch, boolean suffix, boolean build) {
-        minor = this.minor != null ? minor : null;
-        patch = this.patch != null ? patch : null;
-        String buildStr = build ? this.build : null;
-        String[] suffixTokens = suffix ? this.suffixTokens : null;
-        return Semver.create(this.type, major, minor, patch, suffixTokens, buildStr);
-    }
-
-    private Semver with(int major, Integer minor, Integer patch, String[] suffixTokens, String build) {
-        minor = this.minor != null ? minor : null;
-        patch = this.patch != null ? patch : null;
-        return Semver.create(this.type, major, minor, patch, suffixTokens, build);
+    private Semver with(int major, int minor, int patch, boolean suffix, boolean build) {
+        String buildStr = build ? this.getBuild() : null;
+        String[] suffixTokens = suffix ? this.getSuffixTokens() : null;
+        return with(major, minor, patch, suffixTokens, buildStr);
     }
 
-    private static Semver create(SemverType type, int major, Integer minor, Integer patch, String[] suffix, String build) {
-        StringBuilder sb = new StringBuilder()
-                .append(major);
-        if (minor != null) {
-            sb.append(".").append(minor);
-        }
-        if (patch != null) {
-            sb.append(".").append(patch);
-        }
-        if (suffix != null) {
-            boolean first = true;
-            for (String suffixToken : suffix) {
-                if (first) {
-                    sb.append("-");
-                    first = false;
-                } else {
-                    sb.append(".");
-                }
-                sb.append(suffixToken);
+    private Semver with(int major, int minor, int patch, String[] suffixTokens, String build) {
+        if (major < 0 || (this.minor != ABSENT && minor < 0) || (this.patch != ABSENT && patch < 0)) {
+            // A negative increment made a part negative: the version is parsed from its value, as it always was
+            StringBuilder sb = new StringBuilder().append(major);
+            if (this.minor != ABSENT) {
+                sb.append('.').append(minor);
             }
+            if (this.patch != ABSENT) {
+                sb.append('.').append(patch);
+            }
+            return new Semver(appendSuffixAndBuild(sb, suffixTokens, build).toString(), this.type);
         }
-        if (build != null) {
-            sb.append("+").append(build);
-        }
-
-        return new Semver(sb.toString(), type);
+        minor = this.minor != ABSENT ? minor : ABSENT;
+        patch = this.patch != ABSENT ? patch : ABSENT;
+        return Semver.createFromParts(this.type, major, minor, patch, suffixTokens, build);
     }
 
     @Override public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Semver)) return false;
         Semver version = (Semver) o;
-        return value.equals(version.value);
+        return this.getValue().equals(version.getValue());
     }
 
     @Override public int hashCode() {
-        return value.hashCode();
+        return this.getValue().hashCode();
     }
 
+    /**
+     * Compares the version with another version, without taking the build into account.
+     * Missing minor and patch parts are considered as 0, except in NPM mode where the ones missing from the provided
+     * version are wildcards (for example, "1.2.3" is equivalent to "1.2" and to "1").
+     *
+     * This method does not allocate anything: all the other comparison methods rely on it.
+     *
+     * @param version the version to compare
+     *
+     * @return a negative integer, zero, or a positive integer as the current version is lower than, equivalent to, or
+     * greater than the provided version
+     */
     @Override public int compareTo(Semver version) {
-        if (this.isGreaterThan(version)) return 1;
-        else if(this.isLowerThan(version)) return -1;
-        return 0;
+        long key1 = this.packedKey;
+        long key2 = version.packedKey;
+        if ((key1 | key2) >= 0) {
+            // Fast path: both versions are packed
+            if (key1 != key2) return key1 < key2 ? -1 : 1;
+            if ((key1 & PACKED_RELEASE_FLAG) != 0) return 0;
+            return this.compareSuffixes(version);
+        }
+
+        // Compare the main part
+        int cmp = compareParts(this.major, version.major);
+        if (cmp != 0) return cmp;
+
+        if (this.type == SemverType.NPM && version.minor == ABSENT) return 0;
+        cmp = compareParts(this.minor, version.minor);
+        if (cmp != 0) return cmp;
+
+        if (this.type == SemverType.NPM && version.patch == ABSENT) return 0;
+        cmp = compareParts(this.patch, version.patch);
+        if (cmp != 0) return cmp;
+
+        return this.compareSuffixes(version);
+    }
+
+    private int compareSuffixes(Semver version) {
+        long[] suffix1 = this.suffix;
+        long[] suffix2 = version.suffix;
+
+        // If one of the versions has no suffix, it's greater!
+        if (suffix1.length == 0) return suffix2.length == 0 ? 0 : 1;
+        if (suffix2.length == 0) return -1;
+
+        // Let's see if one of suffixes is greater than the other
+        int length = Math.min(suffix1.length, suffix2.length);
+        for (int i = 0; i < length; i++) {
+            int cmp = SemverParser.compareIdentifiers(this.value, suffix1[i], version.value, suffix2[i]);
+            if (cmp != 0) return cmp;
+        }
+
+        // If one of the versions has some remaining suffixes, it's greater
+        return Integer.compare(suffix1.length, suffix2.length);
+    }
+
+    private static int compareParts(int part1, int part2) {
+        return Integer.compare(part1 == ABSENT ? 0 : part1, part2 == ABSENT ? 0 : part2);
+    }
+
+    private static long pack(int major, int minor, int patch, boolean hasSuffix) {
+        // The missing parts are not packed: NPM compares them as wildcards
+        if (major >>> PACKED_MAJOR_BITS != 0 || minor < 0 || minor >>> PACKED_MINOR_BITS != 0
+                || patch < 0 || patch >>> PACKED_PATCH_BITS != 0) {
+            return NOT_PACKABLE;
+        }
+        return (long) major << (PACKED_MINOR_BITS + PACKED_PATCH_BITS + 1)
+                | (long) minor << (PACKED_PATCH_BITS + 1)
+                | (long) patch << 1
+                | (hasSuffix ? 0 : PACKED_RELEASE_FLAG);
+    }
+
+    /**
+     * Returns a key that orders the version with a single long comparison. The major part is stored in 20 bits, the
+     * minor part in 20 bits, the patch part in 22 bits and the last bit is set for the versions without suffix (which
+     * are greater than the versions with a suffix).
+     * Two versions with different keys compare like their keys. Two versions with the same key are equal if they
+     * have no suffix, otherwise their suffixes must be compared.
+     *
+     * @return the key, or {@link #NOT_PACKABLE} if a part is missing or too big
+     */
+    public long getPackedKey() {
+        return packedKey;
     }
 
     @Override public String toString() {
@@ -556,7 +871,7 @@ public class Semver implements Comparable<Semver> {
      * @return the original string passed in the constructor
      */
     public String getOriginalValue() {
-        return originalValue;
+        return originalValue != null ? originalValue : this.getValue();
     }
 
     /**
@@ -565,6 +880,11 @@ public class Semver implements Comparable<Semver> {
      * @return the version as a String
      */
     public String getValue() {
+        String value = this.value;
+        if (value == null) {
+            value = appendMainPart(new StringBuilder(), this.major, this.minor, this.patch).toString();
+            this.value = value;
+        }
         return value;
     }
 
@@ -585,7 +905,7 @@ public class Semver implements Comparable<Semver> {
      * @return the minor part of the version
      */
     public Integer getMinor() {
-        return this.minor;
+        return this.minor == ABSENT ? null : Integer.valueOf(this.minor);
     }
 
     /**
@@ -595,7 +915,7 @@ public class Semver implements Comparable<Semver> {
      * @return the patch part of the version
      */
     public Integer getPatch() {
-        return this.patch;
+        return this.patch == ABSENT ? null : Integer.valueOf(this.patch);
     }
 
     /**
@@ -605,7 +925,36 @@ public class Semver implements Comparable<Semver> {
      * @return the suffix of the version
      */
     public String[] getSuffixTokens() {
-        return suffixTokens;
+        return SemverParser.suffixTokens(this.value, this.suffix);
+    }
+
+    /**
+     * @return true if the version has a minor part (same as {@code getMinor() != null}, without any allocation)
+     */
+    boolean hasMinor() {
+        return this.minor != ABSENT;
+    }
+
+    /**
+     * @return true if the version has a patch part (same as {@code getPatch() != null}, without any allocation)
+     */
+    boolean hasPatch() {
+        return this.patch != ABSENT;
+    }
+
+    /**
+     * @return true if both versions have the same major, minor and patch parts, a missing part only matching a missing
+     * part (same as comparing the getters with {@link java.util.Objects#equals}, without any allocation)
+     */
+    boolean hasSameMainPart(Semver version) {
+        return this.major == version.major && this.minor == version.minor && this.patch == version.patch;
+    }
+
+    /**
+     * @return true if the version has a suffix (same as {@code getSuffixTokens().length > 0}, without any allocation)
+     */
+    boolean hasSuffix() {
+        return this.suffix.length > 0;
     }
 
     /**
@@ -615,7 +964,17 @@ public class Semver implements Comparable<Semver> {
      * @return the build of the version
      */
     public String getBuild() {
-        return build;
+        String value = this.value;
+        if (value == null) {
+            // Only the versions without build have a lazy value
+            return null;
+        }
+        // The parser only keeps the build when there is exactly one plus sign
+        int plus = value.indexOf('+');
+        if (plus < 0 || value.indexOf('+', plus + 1) >= 0) {
+            return null;
+        }
+        return value.substring(plus + 1);
     }
 
     public SemverType getType() {
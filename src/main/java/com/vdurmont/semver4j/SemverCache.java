@@ -0,0 +1,136 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+
+/**
+ * A bounded and thread-safe cache of parsed versions, used by {@link Semver#of(String, SemverType)}.
+ *
+ * The cache is split in segments that are locked independently. Each version type has its own segments, so a
+ * version is always returned for the type it was requested with.
+ */
+public class SemverCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final ParseCache.Parser<Semver> PARSER = new ParseCache.Parser<Semver>() {
+        @Override public Semver parse(String value, SemverType type) {
+            return new Semver(value, type);
+        }
+    };
+
+    private final int capacity;
+    private final EvictionPolicy evictionPolicy;
+    private final ParseCache<Semver> versions;
+
+    /**
+     * Creates a cache with the default capacity, that evicts the least recently used versions.
+     */
+    public SemverCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache that evicts the least recently used versions.
+     *
+     * @param capacity the maximum number of versions kept for each version type
+     */
+    public SemverCache(int capacity) {
+        this(capacity, EvictionPolicy.LEAST_RECENTLY_USED);
+    }
+
+    /**
+     * @param capacity the maximum number of versions kept for each version type
+     * @param evictionPolicy the versions to evict when the cache is full
+     */
+    public SemverCache(int capacity, EvictionPolicy evictionPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be strictly positive: " + capacity);
+        }
+        if (evictionPolicy == null) {
+            throw new IllegalArgumentException("The eviction policy is required.");
+        }
+        this.capacity = capacity;
+        this.evictionPolicy = evictionPolicy;
+        this.versions = new ParseCache<Semver>(PARSER, capacity, evictionPolicy == EvictionPolicy.LEAST_RECENTLY_USED);
+    }
+
+    /**
+     * Returns the cached version, or parses and caches it.
+     *
+     * @param value the version as a string
+     * @param type the version system used to parse the version
+     *
+     * @return the canonical instance of the version
+     *
+     * @throws SemverException if the version is invalid (invalid versions are never cached)
+     */
+    public Semver get(String value, SemverType type) {
+        return this.versions.get(value, type);
+    }
+
+    /**
+     * Removes all the versions from the cache. The statistics are kept.
+     */
+    public void clear() {
+        this.versions.clear();
+    }
+
+    /**
+     * @return the number of versions in the cache
+     */
+    public int size() {
+        return this.versions.size();
+    }
+
+    /**
+     * @return the number of calls to {@link #get(String, SemverType)} that returned a cached version
+     */
+    public long getHitCount() {
+        return this.versions.getHitCount();
+    }
+
+    /**
+     * @return the number of calls to {@link #get(String, SemverType)} that had to parse the version
+     */
+    public long getMissCount() {
+        return this.versions.getMissCount();
+    }
+
+    /**
+     * @return the number of versions removed from the cache to make some room
+     */
+    public long getEvictionCount() {
+        return this.versions.getEvictionCount();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    @Override public String toString() {
+        return "SemverCache{" +
+                "capacity=" + capacity +
+                ", evictionPolicy=" + evictionPolicy +
+                ", size=" + size() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() +
+                '}';
+    }
+
+    /**
+     * The versions to evict when the cache is full
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evicts the version that was requested the least recently
+         */
+        LEAST_RECENTLY_USED,
+        /**
+         * Evicts the version that was added first
+         */
+        FIRST_IN_FIRST_OUT
+    }
+}
@@ -0,0 +1,86 @@
+package com.vdurmont.semver4j;
+
+/**
+ * The result of {@link Semver#tryParse(String, Semver.SemverType)}: either a version, or the reason why the version is
+ * invalid. Unlike the {@link Semver} constructors, parsing never throws (and never fills a stack trace).
+ */
+public class SemverParseResult {
+    private final Semver semver;
+    private final SemverParser parser;
+
+    SemverParseResult(Semver semver, SemverParser parser) {
+        this.semver = semver;
+        this.parser = parser;
+    }
+
+    /**
+     * @return true if the version is valid
+     */
+    public boolean isValid() {
+        return this.semver != null;
+    }
+
+    /**
+     * @return the version, or null if the version is invalid
+     */
+    public Semver getSemver() {
+        return semver;
+    }
+
+    /**
+     * @return the reason why the version is invalid, or null if the version is valid
+     */
+    public ErrorCode getErrorCode() {
+        return this.parser.error;
+    }
+
+    /**
+     * @return the index in the parsed string where the error was detected, or -1 if the version is valid
+     */
+    public int getErrorPosition() {
+        return this.parser.errorPosition;
+    }
+
+    /**
+     * @return the message of the exception that the {@link Semver} constructor throws for the same string, or null if
+     * the version is valid
+     */
+    public String getErrorMessage() {
+        return this.parser.errorMessage();
+    }
+
+    @Override public String toString() {
+        if (this.isValid()) {
+            return "SemverParseResult{semver=" + semver + '}';
+        }
+        return "SemverParseResult{" +
+                "errorCode=" + getErrorCode() +
+                ", errorPosition=" + getErrorPosition() +
+                ", errorMessage='" + getErrorMessage() + '\'' +
+                '}';
+    }
+
+    /**
+     * The reasons why a version can be invalid
+     */
+    public enum ErrorCode {
+        /**
+         * The version ends with a plus sign. The position is the one of the plus sign.
+         */
+        EMPTY_BUILD,
+        /**
+         * The major part is missing or is not a number. The position is the start of the version.
+         */
+        INVALID_MAJOR,
+        /**
+         * The minor part is missing (strict mode only) or is not a number. The position is the start of the minor
+         * part, or the end of the main part if it is missing.
+         */
+        INVALID_MINOR,
+        /**
+         * The patch part is missing (strict mode only) or is not a number. The position is the start of the patch
+         * part, or the end of the main part if it is missing.
+         */
+        INVALID_PATCH
+    }
+}
@@ -0,0 +1,421 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+
+/**
+ * Reads a version string in a single pass and extracts its major, minor, patch and suffix parts.
+ *
+ * The rules are the ones historically implemented with {@link String#split(String)}:
+ * - the version is trimmed (and a leading "v" is removed in NPM mode)
+ * - the suffix starts at the first hyphen, unless a plus sign appears before it
+ * - the build is only kept if there is exactly one plus sign after the main part (or after the suffix)
+ * - trailing empty identifiers are ignored
+ * - the main identifiers after the patch are ignored
+ */
+class SemverParser {
+    /**
+     * Value used for the minor and patch parts when they are not in the version (or are a wildcard in NPM mode)
+     */
+    static final int ABSENT = -1;
+    static final long[] NO_SUFFIX = new long[0];
+    static final String[] NO_SUFFIX_TOKENS = new String[0];
+
+    // A suffix identifier is stored in a long, so that it can be compared without parsing nor allocating anything:
+    // - an identifier only made of digits that fits in a long is stored as its value (always positive)
+    // - any other identifier is stored as a negative long holding its position in the version string: bits 31 to 61
+    //   hold the start index and bits 0 to 30 the end index. Bit 62 is set for the numbers that do not fit in a long.
+    private static final long TEXT = Long.MIN_VALUE;
+    private static final long LARGE_NUMBER = 1L << 62;
+    private static final long INDEX_MASK = Integer.MAX_VALUE;
+
+    private static final long INVALID = -1;
+    private static final long WILDCARD = -2;
+
+    final CharSequence input;
+    // Bounds of the version in the input, once trimmed
+    final int start;
+    final int end;
+    final int major;
+    final int minor;
+    final int patch;
+    /**
+     * The suffix identifiers, with positions relative to the start of the version
+     */
+    final long[] suffix;
+    /**
+     * The reason why the version is invalid, or null if the version is valid
+     */
+    final SemverParseResult.ErrorCode error;
+    final int errorPosition;
+
+    /**
+     * Parses a version. The parser never throws, the validity of the version is given by {@link #error}.
+     *
+     * @param input the version as a string
+     * @param type the version system used to parse the version
+     * @param readSuffix false to only validate the version, without reading the suffix identifiers
+     */
+    SemverParser(CharSequence input, SemverType type, boolean readSuffix) {
+        this.input = input;
+        int start = 0;
+        int end = input.length();
+        while (start < end && input.charAt(start) <= ' ') start++;
+        while (end > start && input.charAt(end - 1) <= ' ') end--;
+        if (type == SemverType.NPM && start < end && (input.charAt(start) == 'v' || input.charAt(start) == 'V')) {
+            start++;
+            while (start < end && input.charAt(start) <= ' ') start++;
+        }
+        this.start = start;
+        this.end = end;
+
+        // Main part: read the dot-separated numbers until the first hyphen or plus sign
+        long main0 = INVALID;
+        long main1 = INVALID;
+        long main2 = INVALID;
+        int start1 = end;
+        int start2 = end;
+        int pieceIndex = 0;
+        int lastNonEmptyPiece = -1;
+        int pieceLength = 0;
+        long piece = 0;
+        char firstChar = 0;
+        int mainEnd = start;
+        while (true) {
+            char c = mainEnd < end ? input.charAt(mainEnd) : '+';
+            if (c == '.' || c == '-' || c == '+') {
+                long parsed = piece;
+                if (pieceLength == 1 && piece == INVALID && (firstChar == 'x' || firstChar == 'X' || firstChar == '*')) {
+                    parsed = WILDCARD;
+                } else if (pieceLength == 0) {
+                    parsed = INVALID;
+                }
+                if (pieceLength > 0) {
+                    lastNonEmptyPiece = pieceIndex;
+                }
+                if (pieceIndex == 0) main0 = parsed;
+                else if (pieceIndex == 1) main1 = parsed;
+                else if (pieceIndex == 2) main2 = parsed;
+                pieceIndex++;
+                if (c != '.') {
+                    break;
+                }
+                if (pieceIndex == 1) start1 = mainEnd + 1;
+                else if (pieceIndex == 2) start2 = mainEnd + 1;
+                pieceLength = 0;
+                piece = 0;
+            } else {
+                if (pieceLength == 0) {
+                    firstChar = c;
+                }
+                pieceLength++;
+                if (piece != INVALID) {
+                    int digit = c >= '0' && c <= '9' ? c - '0' : Character.digit(c, 10);
+                    piece = digit < 0 ? INVALID : piece * 10 + digit;
+                    if (piece > Integer.MAX_VALUE) {
+                        piece = INVALID;
+                    }
+                }
+            }
+            mainEnd++;
+        }
+        // Same as the length of String.split("\\."): trailing empty identifiers are dropped
+        int mainLength = pieceIndex == 1 ? 1 : lastNonEmptyPiece + 1;
+        boolean hasPreRelease = mainEnd < end && input.charAt(mainEnd) == '-';
+        boolean endsWithPlus = end > start && input.charAt(end - 1) == '+';
+
+        SemverParseResult.ErrorCode error = null;
+        int errorPosition = -1;
+        if (!hasPreRelease && endsWithPlus) {
+            error = SemverParseResult.ErrorCode.EMPTY_BUILD;
+            errorPosition = end - 1;
+        } else if (mainLength < 1 || main0 < 0) {
+            error = SemverParseResult.ErrorCode.INVALID_MAJOR;
+            errorPosition = start;
+        } else if (!isValidOptional(main1, mainLength > 1, type)) {
+            error = SemverParseResult.ErrorCode.INVALID_MINOR;
+            errorPosition = mainLength > 1 ? start1 : mainEnd;
+        } else if (!isValidOptional(main2, mainLength > 2, type)) {
+            error = SemverParseResult.ErrorCode.INVALID_PATCH;
+            errorPosition = mainLength > 2 ? start2 : mainEnd;
+        } else if (endsWithPlus) {
+            error = SemverParseResult.ErrorCode.EMPTY_BUILD;
+            errorPosition = end - 1;
+        }
+        this.error = error;
+        this.errorPosition = errorPosition;
+        if (error != null) {
+            this.major = this.minor = this.patch = ABSENT;
+            this.suffix = NO_SUFFIX;
+            return;
+        }
+
+        this.major = (int) main0;
+        this.minor = mainLength > 1 && main1 >= 0 ? (int) main1 : ABSENT;
+        this.patch = mainLength > 2 && main2 >= 0 ? (int) main2 : ABSENT;
+        if (!hasPreRelease || !readSuffix) {
+            this.suffix = NO_SUFFIX;
+        } else {
+            int suffixEnd = end;
+            int plus = indexOf(input, '+', mainEnd + 1, end);
+            if (plus >= 0 && indexOf(input, '+', plus + 1, end) < 0) {
+                suffixEnd = plus;
+            }
+            this.suffix = parseIdentifiers(input, start, mainEnd + 1, suffixEnd);
+        }
+    }
+
+    private static boolean isValidOptional(long parsed, boolean present, SemverType type) {
+        if (!present) {
+            return type != SemverType.STRICT;
+        }
+        return parsed >= 0 || (parsed == WILDCARD && type == SemverType.NPM);
+    }
+
+    /**
+     * @return the version, trimmed
+     */
+    String value() {
+        if (this.input instanceof String && this.start == 0 && this.end == this.input.length()) {
+            return (String) this.input;
+        }
+        return this.input.subSequence(this.start, this.end).toString();
+    }
+
+    /**
+     * @return the input, as a String
+     */
+    String originalValue() {
+        if (this.input instanceof String) {
+            return (String) this.input;
+        }
+        return this.start == 0 && this.end == this.input.length() ? this.value() : this.input.toString();
+    }
+
+    /**
+     * @return the message explaining why the version is invalid, or null if the version is valid
+     */
+    String errorMessage() {
+        if (this.error == null) {
+            return null;
+        }
+        switch (this.error) {
+            case EMPTY_BUILD:
+                return "The build cannot be empty.";
+            case INVALID_MAJOR:
+                return "Invalid version (no major version): " + this.value();
+            case INVALID_MINOR:
+                return "Invalid version (no minor version): " + this.value();
+            default:
+                return "Invalid version (no patch version): " + this.value();
+        }
+    }
+
+    private static int indexOf(CharSequence input, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (input.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the dot-separated identifiers of the suffix, dropping the trailing empty ones.
+     */
+    private static long[] parseIdentifiers(CharSequence input, int offset, int start, int end) {
+        int count = countIdentifiers(input, start, end);
+        if (count == 0) {
+            return NO_SUFFIX;
+        }
+        long[] identifiers = new long[count];
+        int identifierStart = start;
+        for (int i = 0; i < count; i++) {
+            int identifierEnd = indexOf(input, '.', identifierStart, end);
+            if (identifierEnd < 0) {
+                identifierEnd = end;
+            }
+            identifiers[i] = parseIdentifier(input, offset, identifierStart, identifierEnd);
+            identifierStart = identifierEnd + 1;
+        }
+        return identifiers;
+    }
+
+    /**
+     * Same as the length of String.split("\\."): the trailing empty identifiers are not counted
+     */
+    private static int countIdentifiers(CharSequence input, int start, int end) {
+        int count = 0;
+        int pieces = 1;
+        int pieceStart = start;
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == '.') {
+                if (i > pieceStart) {
+                    count = pieces;
+                }
+                pieces++;
+                pieceStart = i + 1;
+            }
+        }
+        if (end > pieceStart || pieces == 1) {
+            count = pieces;
+        }
+        return count;
+    }
+
+    private static int identifierEnd(String value, int start, int end) {
+        int identifierEnd = value.indexOf('.', start);
+        return identifierEnd < 0 || identifierEnd > end ? end : identifierEnd;
+    }
+
+    /**
+     * Encodes a suffix identifier.
+     *
+     * @param input the sequence containing the identifier
+     * @param offset the start of the version in the sequence
+     * @param start the start of the identifier in the sequence
+     * @param end the end of the identifier in the sequence
+     *
+     * @return the identifier, encoded in a long
+     */
+    static long parseIdentifier(CharSequence input, int offset, int start, int end) {
+        long text = TEXT | ((long) (start - offset) << 31) | (end - offset);
+        if (start == end) {
+            return text;
+        }
+        long number = 0;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return text;
+            }
+            if (number > (Long.MAX_VALUE - 9) / 10) {
+                number = LARGE_NUMBER | text;
+            } else if (number >= 0) {
+                number = number * 10 + (c - '0');
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Extracts the suffix tokens of a version previously read by the parser.
+     *
+     * @param value the version
+     * @param suffix the suffix identifiers, as read by the parser
+     *
+     * @return the suffix tokens
+     */
+    static String[] suffixTokens(String value, long[] suffix) {
+        if (suffix.length == 0) {
+            return NO_SUFFIX_TOKENS;
+        }
+        // The suffix starts after the first hyphen and ends at the build, if any
+        int start = value.indexOf('-') + 1;
+        int end = value.indexOf('+');
+        if (end < 0 || value.indexOf('+', end + 1) >= 0) {
+            end = value.length();
+        }
+        String[] tokens = new String[suffix.length];
+        for (int i = 0; i < suffix.length; i++) {
+            int tokenEnd = identifierEnd(value, start, end);
+            tokens[i] = value.substring(start, tokenEnd);
+            start = tokenEnd + 1;
+        }
+        return tokens;
+    }
+
+    /**
+     * Compares two suffix identifiers read by the parser. Numeric identifiers are compared numerically, alphanumeric
+     * identifiers are compared lexically (ignoring the case) and numeric identifiers always have a lower precedence
+     * than alphanumeric identifiers.
+     *
+     * @param value1 the version containing the first identifier
+     * @param identifier1 the first identifier
+     * @param value2 the version containing the second identifier
+     * @param identifier2 the second identifier
+     *
+     * @return a negative integer, zero, or a positive integer as the first identifier is lower than, equal to, or
+     * greater than the second one
+     */
+    static int compareIdentifiers(String value1, long identifier1, String value2, long identifier2) {
+        if (identifier1 >= 0 && identifier2 >= 0) {
+            return Long.compare(identifier1, identifier2);
+        }
+        boolean numeric1 = isNumeric(identifier1);
+        boolean numeric2 = isNumeric(identifier2);
+        if (numeric1 != numeric2) {
+            return numeric1 ? -1 : 1;
+        }
+        if (numeric1) {
+            // At least one of them does not fit in a long
+            return identifier1 >= 0 ? -1 : (identifier2 >= 0 ? 1 : compareLargeNumbers(value1, identifier1, value2, identifier2));
+        }
+        return compareIgnoreCase(value1, start(identifier1), end(identifier1), value2, start(identifier2), end(identifier2));
+    }
+
+    private static int compareLargeNumbers(String value1, long identifier1, String value2, long identifier2) {
+        int start1 = start(identifier1);
+        int end1 = end(identifier1);
+        int start2 = start(identifier2);
+        int end2 = end(identifier2);
+        while (value1.charAt(start1) == '0') start1++;
+        while (value2.charAt(start2) == '0') start2++;
+        int cmp = Integer.compare(end1 - start1, end2 - start2);
+        for (int i = 0; cmp == 0 && start1 + i < end1; i++) {
+            cmp = Character.compare(value1.charAt(start1 + i), value2.charAt(start2 + i));
+        }
+        return cmp;
+    }
+
+    /**
+     * Same as {@link String#compareToIgnoreCase(String)}, on parts of strings.
+     */
+    private static int compareIgnoreCase(String value1, int start1, int end1, String value2, int start2, int end2) {
+        int length1 = end1 - start1;
+        int length2 = end2 - start2;
+        int length = Math.min(length1, length2);
+        for (int i = 0; i < length; i++) {
+            char c1 = value1.charAt(start1 + i);
+            char c2 = value2.charAt(start2 + i);
+            if (c1 != c2) {
+                c1 = Character.toUpperCase(c1);
+                c2 = Character.toUpperCase(c2);
+                if (c1 != c2) {
+                    c1 = Character.toLowerCase(c1);
+                    c2 = Character.toLowerCase(c2);
+                    if (c1 != c2) {
+                        return c1 - c2;
+                    }
+                }
+            }
+        }
+        return length1 - length2;
+    }
+
+    /**
+     * @param identifier an identifier read by the parser
+     *
+     * @return true if the identifier is only made of digits
+     */
+    static boolean isNumeric(long identifier) {
+        return identifier >= 0 || (identifier & LARGE_NUMBER) != 0;
+    }
+
+    /**
+     * @param identifier a non numeric identifier, or a numeric identifier that does not fit in a long
+     *
+     * @return the start of the identifier, relative to the start of the version
+     */
+    static int start(long identifier) {
+        return (int) ((identifier >>> 31) & INDEX_MASK);
+    }
+
+    /**
+     * @param identifier a non numeric identifier, or a numeric identifier that does not fit in a long
+     *
+     * @return the end of the identifier, relative to the start of the version
+     */
+    static int end(long identifier) {
+        return (int) (identifier & INDEX_MASK);
+    }
+}
@@ -0,0 +1,227 @@
+package com.vdurmont.semver4j;
+
+/**
+ * Encodes versions into byte arrays whose unsigned lexicographic order is the order of {@link Semver#compareTo}.
+ *
+ * Layout of a key:
+ * - the major, minor and patch parts, as 4 bytes big-endian ints (a missing part is 0)
+ * - RELEASE for a version without suffix, which sorts after all the suffix identifiers
+ * - or the suffix identifiers followed by END, each identifier being:
+ *   - NUMERIC, the number of digits (1 byte, or 0xFF and 4 bytes) and the digits, without the leading zeros
+ *   - ALPHANUMERIC, the chars folded to the same case (1 byte for ASCII, 3 bytes otherwise) and END
+ *
+ * The build is not part of the key, and neither is anything that compareTo ignores (the case of the identifiers,
+ * the leading zeros of the numbers...).
+ */
+class SemverSortKey {
+    private static final byte END = 0x00;
+    private static final byte NUMERIC = 0x01;
+    private static final byte ALPHANUMERIC = 0x02;
+    private static final byte RELEASE = (byte) 0xFF;
+    private static final int LONG_LENGTH = 0xFF;
+    private static final int MAIN_PART_SIZE = 12;
+
+    private SemverSortKey() {
+    }
+
+    static byte[] encode(int major, int minor, int patch, String value, long[] suffix) {
+        int size = MAIN_PART_SIZE + 1;
+        for (long identifier : suffix) {
+            size += 1 + identifierSize(value, identifier);
+        }
+        byte[] key = new byte[size];
+        int index = writeInt(key, 0, major);
+        index = writeInt(key, index, Math.max(minor, 0));
+        index = writeInt(key, index, Math.max(patch, 0));
+        if (suffix.length == 0) {
+            key[index] = RELEASE;
+            return key;
+        }
+        for (long identifier : suffix) {
+            if (identifier >= 0) {
+                key[index++] = NUMERIC;
+                index = writeNumber(key, index, identifier);
+            } else if (SemverParser.isNumeric(identifier)) {
+                key[index++] = NUMERIC;
+                index = writeDigits(key, index, value, SemverParser.start(identifier), SemverParser.end(identifier));
+            } else {
+                key[index++] = ALPHANUMERIC;
+                for (int i = SemverParser.start(identifier); i < SemverParser.end(identifier); i++) {
+                    index = writeChar(key, index, fold(value.charAt(i)));
+                }
+                key[index++] = END;
+            }
+        }
+        key[index] = END;
+        return key;
+    }
+
+    static Semver decode(byte[] key, Semver.SemverType type) {
+        if (key.length <= MAIN_PART_SIZE) {
+            throw invalid();
+        }
+        int major = readInt(key, 0);
+        int minor = readInt(key, 4);
+        int patch = readInt(key, 8);
+        if (major < 0 || minor < 0 || patch < 0) {
+            throw invalid();
+        }
+        int index = MAIN_PART_SIZE;
+        if (key[index] == RELEASE) {
+            if (key.length != MAIN_PART_SIZE + 1) {
+                throw invalid();
+            }
+            return Semver.createFromSortKey(type, major, minor, patch, null);
+        }
+        int count = 0;
+        String[] tokens = new String[4];
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            byte tag = read(key, index++);
+            if (tag == END) {
+                break;
+            }
+            sb.setLength(0);
+            if (tag == NUMERIC) {
+                int length = read(key, index++) & 0xFF;
+                if (length == LONG_LENGTH) {
+                    length = readInt(key, index);
+                    index += 4;
+                    if (length < 0 || length > key.length) {
+                        throw invalid();
+                    }
+                }
+                for (int i = 0; i < length; i++) {
+                    char c = (char) read(key, index++);
+                    if (c < '0' || c > '9' || (i == 0 && c == '0')) {
+                        throw invalid();
+                    }
+                    sb.append(c);
+                }
+                if (length == 0) {
+                    sb.append('0');
+                }
+            } else if (tag == ALPHANUMERIC) {
+                while (true) {
+                    int b = read(key, index++) & 0xFF;
+                    if (b == END) {
+                        break;
+                    } else if (b < 0x80) {
+                        sb.append((char) (b - 1));
+                    } else {
+                        int c = ((b & 0x03) << 14) | ((read(key, index++) & 0x7F) << 7) | (read(key, index++) & 0x7F);
+                        sb.append((char) c);
+                    }
+                }
+            } else {
+                throw invalid();
+            }
+            if (count == tokens.length) {
+                String[] newTokens = new String[count * 2];
+                System.arraycopy(tokens, 0, newTokens, 0, count);
+                tokens = newTokens;
+            }
+            tokens[count++] = sb.toString();
+        }
+        if (count == 0 || index != key.length) {
+            throw invalid();
+        }
+        String[] suffixTokens = new String[count];
+        System.arraycopy(tokens, 0, suffixTokens, 0, count);
+        return Semver.createFromSortKey(type, major, minor, patch, suffixTokens);
+    }
+
+    /**
+     * Same folding as {@link String#compareToIgnoreCase(String)}
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static int identifierSize(String value, long identifier) {
+        if (identifier >= 0) {
+            return 1 + digitCount(identifier);
+        }
+        int start = SemverParser.start(identifier);
+        int end = SemverParser.end(identifier);
+        if (SemverParser.isNumeric(identifier)) {
+            while (start < end && value.charAt(start) == '0') start++;
+            int length = end - start;
+            return (length < LONG_LENGTH ? 1 : 5) + length;
+        }
+        int size = 1;
+        for (int i = start; i < end; i++) {
+            size += fold(value.charAt(i)) < 0x7F ? 1 : 3;
+        }
+        return size;
+    }
+
+    private static int digitCount(long number) {
+        int count = 0;
+        while (number > 0) {
+            number /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private static int writeNumber(byte[] key, int index, long number) {
+        int length = digitCount(number);
+        key[index++] = (byte) length;
+        for (int i = index + length - 1; i >= index; i--) {
+            key[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        return index + length;
+    }
+
+    private static int writeDigits(byte[] key, int index, String value, int start, int end) {
+        while (start < end && value.charAt(start) == '0') start++;
+        int length = end - start;
+        if (length < LONG_LENGTH) {
+            key[index++] = (byte) length;
+        } else {
+            key[index++] = (byte) LONG_LENGTH;
+            index = writeInt(key, index, length);
+        }
+        for (int i = start; i < end; i++) {
+            key[index++] = (byte) value.charAt(i);
+        }
+        return index;
+    }
+
+    private static int writeChar(byte[] key, int index, char c) {
+        if (c < 0x7F) {
+            key[index++] = (byte) (c + 1);
+        } else {
+            key[index++] = (byte) (0x80 | (c >>> 14));
+            key[index++] = (byte) ((c >>> 7) & 0x7F);
+            key[index++] = (byte) (c & 0x7F);
+        }
+        return index;
+    }
+
+    private static int writeInt(byte[] key, int index, int value) {
+        key[index] = (byte) (value >>> 24);
+        key[index + 1] = (byte) (value >>> 16);
+        key[index + 2] = (byte) (value >>> 8);
+        key[index + 3] = (byte) value;
+        return index + 4;
+    }
+
+    private static int readInt(byte[] key, int index) {
+        return (read(key, index) & 0xFF) << 24 | (read(key, index + 1) & 0xFF) << 16
+                | (read(key, index + 2) & 0xFF) << 8 | (read(key, index + 3) & 0xFF);
+    }
+
+    private static byte read(byte[] key, int index) {
+        if (index >= key.length) {
+            throw invalid();
+        }
+        return key[index];
+    }
+
+    private static SemverException invalid() {
+        return new SemverException("Invalid sort key.");
+    }
+}
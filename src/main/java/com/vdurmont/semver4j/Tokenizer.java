@@ -1,31 +1,20 @@
 package com.vdurmont.semver4j;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Utility class to convert a NPM requirement string into a list of tokens.
  */
 public class Tokenizer {
-    private static final Map<Semver.SemverType, Map<Character, Token>> SPECIAL_CHARS;
+    // The operator tokens have no value, they are shared
+    private static final Token[] OPERATORS;
 
     static {
-        SPECIAL_CHARS = new HashMap<Semver.SemverType, Map<Character, Token>>();
-
-        for (Semver.SemverType type : Semver.SemverType.values()) {
-            SPECIAL_CHARS.put(type, new HashMap<Character, Token>());
-        }
-
-        for (TokenType tokenType : TokenType.values()) {
-            if (tokenType.character != null) {
-                for (Semver.SemverType type : Semver.SemverType.values()) {
-                    if (tokenType.supports(type)) {
-                        SPECIAL_CHARS.get(type).put(tokenType.character, new Token(tokenType));
-                    }
-                }
-            }
+        TokenType[] tokenTypes = TokenType.values();
+        OPERATORS = new Token[tokenTypes.length];
+        for (TokenType tokenType : tokenTypes) {
+            OPERATORS[tokenType.ordinal()] = new Token(tokenType);
         }
     }
 
@@ -35,61 +24,129 @@ public class Tokenizer {
      * - If the token is an operator, it will add the operator
      * - It will insert missing "AND" operators for ranges
      *
+     * The string is read in a single pass. The spaces are ignored, even inside a version.
+     *
      * @param requirement the requirement string
      * @param type the version system used when tokenizing the requirement
      *
      * @return the list of tokens
      */
     protected static List<Token> tokenize(String requirement, Semver.SemverType type) {
-        Map<Character, Token> specialChars = SPECIAL_CHARS.get(type);
-
-        // Replace the tokens made of 2 chars
-        if (type == Semver.SemverType.COCOAPODS) {
-            requirement = requirement.replace("~>", "~");
-        } else if (type == Semver.SemverType.NPM) {
-            requirement = requirement.replace("||", "|");
-        }
-        requirement = requirement.replace("<=", "≤").replace(">=", "≥");
-
-
-        LinkedList<Token> tokens = new LinkedList<Token>();
+        List<Token> tokens = new ArrayList<Token>();
         Token previousToken = null;
 
-        char[] chars = requirement.toCharArray();
-        Token token = null;
-        for (char c : chars) {
-            if (c == ' ') continue;
+        int length = requirement.length();
+        // The version being read: its bounds in the requirement, or its value if it is not a part of the requirement
+        // (when there are spaces inside, or "<=" and ">=" in a version system without these operators)
+        int versionStart = -1;
+        int versionEnd = -1;
+        StringBuilder version = null;
+
+        int i = 0;
+        while (i < length) {
+            char c = requirement.charAt(i);
+            char next = i + 1 < length ? requirement.charAt(i + 1) : '\0';
+            int width = 1;
+            if (c == '<' && next == '=') {
+                c = TokenType.LTE.character;
+                width = 2;
+            } else if (c == '>' && next == '=') {
+                c = TokenType.GTE.character;
+                width = 2;
+            } else if ((c == '~' && next == '>' && type == Semver.SemverType.COCOAPODS)
+                    || (c == '|' && next == '|' && type == Semver.SemverType.NPM)) {
+                width = 2;
+            }
 
-            if (specialChars.containsKey(c)) {
-                if (token != null) {
-                    tokens.add(token);
-                    previousToken = token;
-                    token = null;
+            if (c == ' ') {
+                i++;
+                continue;
+            }
+
+            TokenType tokenType = operator(c, type);
+            if (tokenType != null) {
+                if (versionStart >= 0) {
+                    previousToken = new Token(TokenType.VERSION, version != null ? version.toString() : requirement.substring(versionStart, versionEnd));
+                    tokens.add(previousToken);
+                    versionStart = -1;
+                    version = null;
                 }
 
-                Token current = specialChars.get(c);
-                if (current.type.isUnary() && previousToken != null && previousToken.type == TokenType.VERSION) {
-                    // Handling the ranges like "≥1.2.3 <4.5.6" by inserting a "AND" binary operator
-                    tokens.add(new Token(TokenType.AND));
+                if (tokenType.isUnary() && previousToken != null && previousToken.type == TokenType.VERSION) {
+                    // Handling the ranges like ">=1.2.3 <4.5.6" by inserting a "AND" binary operator
+                    tokens.add(OPERATORS[TokenType.AND.ordinal()]);
                 }
 
-                tokens.add(current);
-                previousToken = current;
+                previousToken = OPERATORS[tokenType.ordinal()];
+                tokens.add(previousToken);
             } else {
-                if (token == null) {
-                    token = new Token(TokenType.VERSION);
+                if (versionStart < 0) {
+                    versionStart = i;
+                    versionEnd = i;
+                }
+                if (version == null && (versionEnd != i || width != 1)) {
+                    version = new StringBuilder(requirement.length()).append(requirement, versionStart, versionEnd);
+                }
+                if (version != null) {
+                    version.append(c);
                 }
-                token.append(c);
+                versionEnd = i + width;
             }
+            i += width;
         }
 
-        if (token != null) {
-            tokens.add(token);
+        if (versionStart >= 0) {
+            tokens.add(new Token(TokenType.VERSION, version != null ? version.toString() : requirement.substring(versionStart, versionEnd)));
         }
 
         return tokens;
     }
 
+    /**
+     * @return the operator of a char, or null if the char is a part of a version
+     */
+    private static TokenType operator(char c, Semver.SemverType type) {
+        TokenType tokenType;
+        switch (c) {
+            case '~':
+                tokenType = TokenType.TILDE;
+                break;
+            case '^':
+                tokenType = TokenType.CARET;
+                break;
+            case '=':
+                tokenType = TokenType.EQ;
+                break;
+            case '<':
+                tokenType = TokenType.LT;
+                break;
+            case '≤':
+                tokenType = TokenType.LTE;
+                break;
+            case '>':
+                tokenType = TokenType.GT;
+                break;
+            case '≥':
+                tokenType = TokenType.GTE;
+                break;
+            case '-':
+                tokenType = TokenType.HYPHEN;
+                break;
+            case '|':
+                tokenType = TokenType.OR;
+                break;
+            case '(':
+                tokenType = TokenType.OPENING;
+                break;
+            case ')':
+                tokenType = TokenType.CLOSING;
+                break;
+            default:
+                return null;
+        }
+        return tokenType.supports(type) ? tokenType : null;
+    }
+
     /**
      * A token in a requirement string. Has a type and a value if it is of type VERSION
      */
@@ -139,12 +196,16 @@ public class Tokenizer {
 
         public final Character character;
         private final boolean unary;
-        private final Semver.SemverType[] supportedTypes;
+        // Indexed by the ordinals of the types
+        private final boolean[] supportedTypes;
 
         TokenType(Character character, boolean unary, Semver.SemverType... supportedTypes) {
             this.character = character;
             this.unary = unary;
-            this.supportedTypes = supportedTypes;
+            this.supportedTypes = new boolean[Semver.SemverType.values().length];
+            for (Semver.SemverType type : supportedTypes) {
+                this.supportedTypes[type.ordinal()] = true;
+            }
         }
 
         public boolean isUnary() {
@@ -152,12 +213,7 @@ public class Tokenizer {
         }
 
         public boolean supports(Semver.SemverType type) {
-            for (Semver.SemverType t : this.supportedTypes) {
-                if (t == type) {
-                    return true;
-                }
-            }
-            return false;
+            return this.supportedTypes[type.ordinal()];
         }
     }
 }
@@ -0,0 +1,132 @@
+package com.vdurmont.semver4j;
+
+import java.util.Objects;
+
+/**
+ * An interval of versions, in the order of {@link Semver#compareTo(Semver)}. A null bound is infinite.
+ *
+ * The bounds must have their minor and patch parts, so that comparing a version to them never involves the NPM
+ * wildcards.
+ */
+class VersionInterval {
+    static final VersionInterval ALL = new VersionInterval(null, false, null, false);
+
+    final Semver lower;
+    final boolean lowerInclusive;
+    final Semver upper;
+    final boolean upperInclusive;
+
+    VersionInterval(Semver lower, boolean lowerInclusive, Semver upper, boolean upperInclusive) {
+        this.lower = lower;
+        this.lowerInclusive = lower != null && lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upper != null && upperInclusive;
+    }
+
+    static VersionInterval atLeast(Semver version, boolean inclusive) {
+        return new VersionInterval(version, inclusive, null, false);
+    }
+
+    static VersionInterval atMost(Semver version, boolean inclusive) {
+        return new VersionInterval(null, false, version, inclusive);
+    }
+
+    boolean isEmpty() {
+        if (this.lower == null || this.upper == null) {
+            return false;
+        }
+        int cmp = this.lower.compareTo(this.upper);
+        return cmp > 0 || (cmp == 0 && !(this.lowerInclusive && this.upperInclusive));
+    }
+
+    /**
+     * @return true if the version is lower than all the versions of the interval
+     */
+    boolean isAbove(Semver version) {
+        if (this.lower == null) {
+            return false;
+        }
+        int cmp = version.compareTo(this.lower);
+        return cmp < 0 || (cmp == 0 && !this.lowerInclusive);
+    }
+
+    /**
+     * @return true if the version is greater than all the versions of the interval
+     */
+    boolean isBelow(Semver version) {
+        if (this.upper == null) {
+            return false;
+        }
+        int cmp = version.compareTo(this.upper);
+        return cmp > 0 || (cmp == 0 && !this.upperInclusive);
+    }
+
+    boolean contains(Semver version) {
+        return !this.isAbove(version) && !this.isBelow(version);
+    }
+
+    /**
+     * Orders the intervals by lower bound, the inclusive bounds first.
+     */
+    static int compareLowers(VersionInterval interval1, VersionInterval interval2) {
+        if (interval1.lower == null || interval2.lower == null) {
+            return interval1.lower == null ? (interval2.lower == null ? 0 : -1) : 1;
+        }
+        int cmp = interval1.lower.compareTo(interval2.lower);
+        if (cmp != 0 || interval1.lowerInclusive == interval2.lowerInclusive) {
+            return cmp;
+        }
+        return interval1.lowerInclusive ? -1 : 1;
+    }
+
+    /**
+     * Orders the intervals by upper bound, the exclusive bounds first.
+     */
+    static int compareUppers(VersionInterval interval1, VersionInterval interval2) {
+        if (interval1.upper == null || interval2.upper == null) {
+            return interval1.upper == null ? (interval2.upper == null ? 0 : 1) : -1;
+        }
+        int cmp = interval1.upper.compareTo(interval2.upper);
+        if (cmp != 0 || interval1.upperInclusive == interval2.upperInclusive) {
+            return cmp;
+        }
+        return interval1.upperInclusive ? 1 : -1;
+    }
+
+    /**
+     * @return true if the union of the interval and of the next one (which has a greater or equal lower bound) is an
+     * interval
+     */
+    boolean touches(VersionInterval next) {
+        if (this.upper == null || next.lower == null) {
+            return true;
+        }
+        int cmp = next.lower.compareTo(this.upper);
+        return cmp < 0 || (cmp == 0 && (this.upperInclusive || next.lowerInclusive));
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VersionInterval)) return false;
+        VersionInterval that = (VersionInterval) o;
+        return lowerInclusive == that.lowerInclusive &&
+                upperInclusive == that.upperInclusive &&
+                sameBound(lower, that.lower) &&
+                sameBound(upper, that.upper);
+    }
+
+    private static boolean sameBound(Semver bound1, Semver bound2) {
+        return bound1 == null ? bound2 == null : bound2 != null && bound1.compareTo(bound2) == 0;
+    }
+
+    @Override public int hashCode() {
+        // The bounds are compared with compareTo, only the main part is consistent with it
+        return Objects.hash(lowerInclusive, upperInclusive,
+                lower == null ? null : lower.getMajor(), upper == null ? null : upper.getMajor());
+    }
+
+    @Override public String toString() {
+        return (this.lowerInclusive ? "[" : "(") + (this.lower != null ? this.lower : "") + "," +
+                (this.upper != null ? this.upper : "") + (this.upperInclusive ? "]" : ")");
+    }
+}
@@ -0,0 +1,180 @@
+package com.vdurmont.semver4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable union of sorted and disjoint {@link VersionInterval}s. Checking if a version belongs to the set is a
+ * binary search over the bounds.
+ */
+class VersionIntervalSet {
+    static final VersionIntervalSet EMPTY = new VersionIntervalSet(new VersionInterval[0]);
+    static final VersionIntervalSet ALL = new VersionIntervalSet(new VersionInterval[] { VersionInterval.ALL });
+
+    private static final Comparator<VersionInterval> LOWER_COMPARATOR = new Comparator<VersionInterval>() {
+        @Override public int compare(VersionInterval interval1, VersionInterval interval2) {
+            return VersionInterval.compareLowers(interval1, interval2);
+        }
+    };
+
+    private final VersionInterval[] intervals;
+
+    private VersionIntervalSet(VersionInterval[] intervals) {
+        this.intervals = intervals;
+    }
+
+    static VersionIntervalSet of(VersionInterval interval) {
+        return interval.isEmpty() ? EMPTY : new VersionIntervalSet(new VersionInterval[] { interval });
+    }
+
+    /**
+     * @param intervals any intervals, they may overlap
+     *
+     * @return the union of the intervals
+     */
+    static VersionIntervalSet union(List<VersionInterval> intervals) {
+        List<VersionInterval> sorted = new ArrayList<VersionInterval>(intervals.size());
+        for (VersionInterval interval : intervals) {
+            if (!interval.isEmpty()) {
+                sorted.add(interval);
+            }
+        }
+        if (sorted.isEmpty()) {
+            return EMPTY;
+        }
+        Collections.sort(sorted, LOWER_COMPARATOR);
+
+        List<VersionInterval> merged = new ArrayList<VersionInterval>();
+        VersionInterval current = sorted.get(0);
+        for (int i = 1; i < sorted.size(); i++) {
+            VersionInterval next = sorted.get(i);
+            if (current.touches(next)) {
+                if (VersionInterval.compareUppers(next, current) > 0) {
+                    current = new VersionInterval(current.lower, current.lowerInclusive, next.upper, next.upperInclusive);
+                }
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return new VersionIntervalSet(merged.toArray(new VersionInterval[merged.size()]));
+    }
+
+    VersionIntervalSet union(VersionIntervalSet other) {
+        if (this.intervals.length == 0 || other == ALL) return other;
+        if (other.intervals.length == 0 || this == ALL) return this;
+        List<VersionInterval> all = new ArrayList<VersionInterval>(this.intervals.length + other.intervals.length);
+        Collections.addAll(all, this.intervals);
+        Collections.addAll(all, other.intervals);
+        return union(all);
+    }
+
+    VersionIntervalSet intersection(VersionIntervalSet other) {
+        if (this == ALL || other.intervals.length == 0) return other;
+        if (other == ALL || this.intervals.length == 0) return this;
+        List<VersionInterval> result = new ArrayList<VersionInterval>();
+        int i = 0;
+        int j = 0;
+        while (i < this.intervals.length && j < other.intervals.length) {
+            VersionInterval interval1 = this.intervals[i];
+            VersionInterval interval2 = other.intervals[j];
+            VersionInterval lower = VersionInterval.compareLowers(interval1, interval2) >= 0 ? interval1 : interval2;
+            int cmp = VersionInterval.compareUppers(interval1, interval2);
+            VersionInterval upper = cmp <= 0 ? interval1 : interval2;
+            VersionInterval intersection = new VersionInterval(lower.lower, lower.lowerInclusive, upper.upper, upper.upperInclusive);
+            if (!intersection.isEmpty()) {
+                result.add(intersection);
+            }
+            // The interval that ends first cannot intersect anything else
+            if (cmp <= 0) i++;
+            if (cmp >= 0) j++;
+        }
+        if (result.isEmpty()) {
+            return EMPTY;
+        }
+        return new VersionIntervalSet(result.toArray(new VersionInterval[result.size()]));
+    }
+
+    /**
+     * @return the versions that are not in the set
+     */
+    VersionIntervalSet complement() {
+        if (this.intervals.length == 0) return ALL;
+        if (this == ALL) return EMPTY;
+        List<VersionInterval> result = new ArrayList<VersionInterval>(this.intervals.length + 1);
+        // The lower bound of the current gap, null for the versions lower than the first interval
+        Semver lower = null;
+        boolean lowerInclusive = false;
+        for (VersionInterval interval : this.intervals) {
+            if (interval.lower != null) {
+                result.add(new VersionInterval(lower, lowerInclusive, interval.lower, !interval.lowerInclusive));
+            }
+            lower = interval.upper;
+            lowerInclusive = !interval.upperInclusive;
+        }
+        if (lower != null) {
+            result.add(VersionInterval.atLeast(lower, lowerInclusive));
+        }
+        return result.isEmpty() ? EMPTY : new VersionIntervalSet(result.toArray(new VersionInterval[result.size()]));
+    }
+
+    boolean contains(Semver version) {
+        // Find the first interval that does not end before the version
+        int low = 0;
+        int high = this.intervals.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (this.intervals[middle].isBelow(version)) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low < this.intervals.length && !this.intervals[low].isAbove(version);
+    }
+
+    boolean isEmpty() {
+        return this.intervals.length == 0;
+    }
+
+    int size() {
+        return this.intervals.length;
+    }
+
+    VersionInterval get(int index) {
+        return this.intervals[index];
+    }
+
+    List<VersionInterval> getIntervals() {
+        return Collections.unmodifiableList(Arrays.asList(this.intervals));
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VersionIntervalSet)) return false;
+        VersionIntervalSet that = (VersionIntervalSet) o;
+        return Arrays.equals(intervals, that.intervals);
+    }
+
+    @Override public int hashCode() {
+        return Arrays.hashCode(intervals);
+    }
+
+    @Override public String toString() {
+        if (this.intervals.length == 0) {
+            return "{}";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (VersionInterval interval : this.intervals) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(interval);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package com.vdurmont.semver4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable interval tree of {@link VersionInterval}s tagged with values, that finds the intervals containing a
+ * version in O(log n + k), k being the number of intervals found.
+ *
+ * Each node has a center version and keeps the intervals whose bounds surround it, sorted by lower and by upper bound.
+ * The intervals that end before the center are in the left subtree, the ones that start after it in the right one. A
+ * version below the center is in the intervals of the node whose lower bound is low enough: they are the first ones
+ * by lower bound, the scan stops at the first interval that does not contain it.
+ *
+ * @param <V> the type of the values
+ */
+class VersionIntervalTree<V> {
+    private static final Comparator<Record<?>> LOWER_COMPARATOR = new Comparator<Record<?>>() {
+        @Override public int compare(Record<?> record1, Record<?> record2) {
+            return VersionInterval.compareLowers(record1.interval, record2.interval);
+        }
+    };
+    private static final Comparator<Record<?>> UPPER_COMPARATOR = new Comparator<Record<?>>() {
+        @Override public int compare(Record<?> record1, Record<?> record2) {
+            return VersionInterval.compareUppers(record2.interval, record1.interval);
+        }
+    };
+
+    private final Record<V>[] byLower;
+    private final Record<V>[] byUpper;
+    private final Node root;
+
+    /**
+     * Builds a tree. The records are sorted with a merge sort that detects the sorted runs: the records of other trees
+     * (see {@link #getRecordsByLower()} and {@link #getRecordsByUpper()}) are merged in linear time.
+     *
+     * @param byLower the records, in any order
+     * @param byUpper the same records, in any order
+     */
+    @SuppressWarnings("unchecked")
+    VersionIntervalTree(List<Record<V>> byLower, List<Record<V>> byUpper) {
+        this.byLower = byLower.toArray((Record<V>[]) new Record<?>[byLower.size()]);
+        this.byUpper = byUpper.toArray((Record<V>[]) new Record<?>[byUpper.size()]);
+        Arrays.sort(this.byLower, LOWER_COMPARATOR);
+        Arrays.sort(this.byUpper, UPPER_COMPARATOR);
+        this.root = build(this.byLower, this.byUpper);
+    }
+
+    private static Node build(Record<?>[] byLower, Record<?>[] byUpper) {
+        int count = byLower.length;
+        if (count == 0) {
+            return null;
+        }
+        Semver center = center(byLower, byUpper);
+        if (center == null) {
+            // Only infinite intervals
+            return new Node(null, byLower, byUpper, null, null);
+        }
+
+        int leftCount = 0;
+        int rightCount = 0;
+        for (Record<?> record : byLower) {
+            int side = side(record.interval, center);
+            if (side < 0) leftCount++;
+            if (side > 0) rightCount++;
+        }
+        // The partitions keep the order of the arrays
+        Record<?>[] leftByLower = new Record<?>[leftCount];
+        Record<?>[] leftByUpper = new Record<?>[leftCount];
+        Record<?>[] rightByLower = new Record<?>[rightCount];
+        Record<?>[] rightByUpper = new Record<?>[rightCount];
+        Record<?>[] middleByLower = new Record<?>[count - leftCount - rightCount];
+        Record<?>[] middleByUpper = new Record<?>[count - leftCount - rightCount];
+        partition(byLower, center, leftByLower, middleByLower, rightByLower);
+        partition(byUpper, center, leftByUpper, middleByUpper, rightByUpper);
+        return new Node(center, middleByLower, middleByUpper,
+                build(leftByLower, leftByUpper), build(rightByLower, rightByUpper));
+    }
+
+    /**
+     * @return the median lower bound, or the median upper bound, or any bound if most intervals are infinite on both
+     * sides (null if they all are)
+     */
+    private static Semver center(Record<?>[] byLower, Record<?>[] byUpper) {
+        int middle = byLower.length / 2;
+        if (byLower[middle].interval.lower != null) {
+            return byLower[middle].interval.lower;
+        } else if (byUpper[middle].interval.upper != null) {
+            return byUpper[middle].interval.upper;
+        }
+        // The infinite intervals are all kept by this node, so the children have none and never get here
+        for (Record<?> record : byLower) {
+            if (record.interval.lower != null) return record.interval.lower;
+            if (record.interval.upper != null) return record.interval.upper;
+        }
+        return null;
+    }
+
+    /**
+     * @return -1 if the interval ends before the center, 1 if it starts after it, 0 if its bounds surround it
+     */
+    private static int side(VersionInterval interval, Semver center) {
+        if (interval.upper != null && interval.upper.compareTo(center) < 0) {
+            return -1;
+        } else if (interval.lower != null && interval.lower.compareTo(center) > 0) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private static void partition(Record<?>[] records, Semver center, Record<?>[] left, Record<?>[] middle,
+                                  Record<?>[] right) {
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        for (Record<?> record : records) {
+            int side = side(record.interval, center);
+            if (side < 0) {
+                left[i++] = record;
+            } else if (side > 0) {
+                right[k++] = record;
+            } else {
+                middle[j++] = record;
+            }
+        }
+    }
+
+    /**
+     * Adds the values of the intervals that contain a version to a list.
+     *
+     * @param version the version
+     * @param result the list that receives the values, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    void find(Semver version, List<? super V> result) {
+        Node node = this.root;
+        while (node != null) {
+            int cmp = node.center == null ? 0 : version.compareTo(node.center);
+            if (cmp < 0) {
+                // All the intervals of the node end after the version
+                for (int i = 0; i < node.byLower.length && !node.byLower[i].interval.isAbove(version); i++) {
+                    result.add((V) node.byLower[i].value);
+                }
+                node = node.left;
+            } else if (cmp > 0) {
+                // All the intervals of the node start before the version
+                for (int i = 0; i < node.byUpper.length && !node.byUpper[i].interval.isBelow(version); i++) {
+                    result.add((V) node.byUpper[i].value);
+                }
+                node = node.right;
+            } else {
+                for (Record<?> record : node.byLower) {
+                    if (record.interval.contains(version)) {
+                        result.add((V) record.value);
+                    }
+                }
+                node = null;
+            }
+        }
+    }
+
+    /**
+     * @return the records of the tree, by lower bound
+     */
+    List<Record<V>> getRecordsByLower() {
+        return Collections.unmodifiableList(Arrays.asList(this.byLower));
+    }
+
+    /**
+     * @return the records of the tree, by decreasing upper bound
+     */
+    List<Record<V>> getRecordsByUpper() {
+        return Collections.unmodifiableList(Arrays.asList(this.byUpper));
+    }
+
+    /**
+     * An interval and its value.
+     */
+    static class Record<V> {
+        final VersionInterval interval;
+        final V value;
+
+        Record(VersionInterval interval, V value) {
+            this.interval = interval;
+            this.value = value;
+        }
+    }
+
+    private static class Node {
+        // Null if all the intervals are infinite on both sides
+        private final Semver center;
+        private final Record<?>[] byLower;
+        // By decreasing upper bound
+        private final Record<?>[] byUpper;
+        private final Node left;
+        private final Node right;
+
+        Node(Semver center, Record<?>[] byLower, Record<?>[] byUpper, Node left, Node right) {
+            this.center = center;
+            this.byLower = byLower;
+            this.byUpper = byUpper;
+            this.left = left;
+            this.right = right;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.vdurmont.semver4j;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notifies the listeners whose requirement is satisfied by a published version.
+ *
+ * The requirements of the subscriptions are kept in a {@link RequirementIndex}, so publishing a version does not check
+ * them one by one: finding the subscriptions is O(log² n + k), k being the number of subscriptions to notify. Each
+ * listener is then called on the executor given to the constructor.
+ *
+ * The publisher is thread-safe: versions can be published while subscriptions are added and cancelled. A version is
+ * dispatched to the subscriptions that were added before it was published, a subscription that is added during the
+ * publication may or may not get it. A cancelled subscription is not notified anymore, unless its listener is already
+ * running.
+ */
+public class VersionPublisher {
+    private final Executor executor;
+    private final RequirementIndex<Subscription> subscriptions = new RequirementIndex<Subscription>();
+
+    private final AtomicLong publishCount = new AtomicLong();
+    private final AtomicLong dispatchCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong rejectionCount = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * @param executor the executor that calls the listeners (a direct executor calls them in the publishing thread)
+     */
+    public VersionPublisher(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("The executor is required.");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes to the versions that satisfy a requirement.
+     *
+     * @param requirement the requirement
+     * @param listener the listener called with each published version that satisfies the requirement
+     *
+     * @return the subscription, that can be cancelled
+     *
+     * @throws SemverException if the requirement is not made of ranges combined with AND and OR operators
+     */
+    public Subscription subscribe(Requirement requirement, Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("The listener is required.");
+        }
+        Subscription subscription = new Subscription(this, requirement, listener);
+        this.subscriptions.add(subscription.entry);
+        return subscription;
+    }
+
+    /**
+     * Dispatches a version to the listeners of the subscriptions whose requirement it satisfies.
+     *
+     * @param version the published version
+     *
+     * @return the number of listeners that were given to the executor
+     */
+    public int publish(final Semver version) {
+        final long start = System.nanoTime();
+        this.publishCount.incrementAndGet();
+        List<Subscription> subscriptions = this.subscriptions.find(version);
+        int dispatched = 0;
+        for (final Subscription subscription : subscriptions) {
+            try {
+                this.executor.execute(new Runnable() {
+                    @Override public void run() {
+                        dispatch(subscription, version, start);
+                    }
+                });
+                dispatched++;
+            } catch (RejectedExecutionException e) {
+                this.rejectionCount.incrementAndGet();
+            }
+        }
+        return dispatched;
+    }
+
+    private void dispatch(Subscription subscription, Semver version, long start) {
+        if (subscription.cancelled) {
+            return;
+        }
+        try {
+            subscription.listener.onPublish(version);
+        } catch (RuntimeException e) {
+            this.failureCount.incrementAndGet();
+        }
+        long latency = System.nanoTime() - start;
+        this.dispatchCount.incrementAndGet();
+        this.totalLatency.addAndGet(latency);
+        long max = this.maxLatency.get();
+        while (latency > max && !this.maxLatency.compareAndSet(max, latency)) {
+            max = this.maxLatency.get();
+        }
+    }
+
+    /**
+     * @return the number of active subscriptions
+     */
+    public int getSubscriptionCount() {
+        return this.subscriptions.size();
+    }
+
+    /**
+     * @return the number of calls to {@link #publish(Semver)}
+     */
+    public long getPublishCount() {
+        return this.publishCount.get();
+    }
+
+    /**
+     * @return the number of listener calls that are over (including the ones that failed)
+     */
+    public long getDispatchCount() {
+        return this.dispatchCount.get();
+    }
+
+    /**
+     * @return the number of listener calls that threw an exception
+     */
+    public long getFailureCount() {
+        return this.failureCount.get();
+    }
+
+    /**
+     * @return the number of listener calls that the executor rejected
+     */
+    public long getRejectionCount() {
+        return this.rejectionCount.get();
+    }
+
+    /**
+     * The latency of a listener call is the time between the start of {@link #publish(Semver)} and the end of the call.
+     *
+     * @param unit the unit of the result
+     *
+     * @return the average latency of the listener calls that are over, or 0 if there is none
+     */
+    public long getAverageDispatchLatency(TimeUnit unit) {
+        long count = this.dispatchCount.get();
+        return count == 0 ? 0 : unit.convert(this.totalLatency.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @see #getAverageDispatchLatency(TimeUnit)
+     *
+     * @param unit the unit of the result
+     *
+     * @return the maximum latency of the listener calls that are over, or 0 if there is none
+     */
+    public long getMaxDispatchLatency(TimeUnit unit) {
+        return unit.convert(this.maxLatency.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override public String toString() {
+        return "VersionPublisher{" +
+                "subscriptions=" + getSubscriptionCount() +
+                ", publications=" + getPublishCount() +
+                ", dispatches=" + getDispatchCount() +
+                ", failures=" + getFailureCount() +
+                ", rejections=" + getRejectionCount() +
+                ", averageLatencyMicros=" + getAverageDispatchLatency(TimeUnit.MICROSECONDS) +
+                ", maxLatencyMicros=" + getMaxDispatchLatency(TimeUnit.MICROSECONDS) +
+                '}';
+    }
+
+    /**
+     * Receives the published versions that satisfy the requirement of a subscription.
+     */
+    public interface Listener {
+        /**
+         * Called by the executor of the publisher. The exceptions are counted by
+         * {@link VersionPublisher#getFailureCount()} and ignored.
+         *
+         * @param version the published version
+         */
+        void onPublish(Semver version);
+    }
+
+    /**
+     * A requirement and its listener.
+     */
+    public static class Subscription {
+        private final VersionPublisher publisher;
+        private final Listener listener;
+        private final RequirementIndex.Entry<Subscription> entry;
+        private volatile boolean cancelled;
+
+        private Subscription(VersionPublisher publisher, Requirement requirement, Listener listener) {
+            this.publisher = publisher;
+            this.listener = listener;
+            this.entry = new RequirementIndex.Entry<Subscription>(requirement, this);
+        }
+
+        /**
+         * Stops the notifications of the subscription.
+         *
+         * @return true if the subscription was cancelled, false if it already was
+         */
+        public boolean cancel() {
+            this.cancelled = true;
+            return this.publisher.subscriptions.remove(this.entry);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public Requirement getRequirement() {
+            return this.entry.getRequirement();
+        }
+
+        public Listener getListener() {
+            return listener;
+        }
+
+        @Override public String toString() {
+            return "Subscription{" +
+                    "requirement=" + getRequirement() +
+                    ", cancelled=" + cancelled +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The published versions of packages, sorted, that can be queried with requirements.
+ *
+ * The versions of a package are kept in an immutable snapshot, a {@link PackageVersions}. An update builds a new
+ * snapshot and swaps it with a compare-and-set, so the readers never wait and always see all or nothing of an update.
+ * Copying the versions makes an update O(n): ingest the versions in batches with {@link #addAll(String, Collection)},
+ * that sorts the batch and merges it in a single copy.
+ *
+ * The versions are ordered as by {@link Semver#compareTo(Semver)}, the missing minor and patch parts being 0: "1.2"
+ * and "1.2.0" are the same version, and only the first one that was added is kept.
+ */
+public class VersionRegistry {
+    private static final Semver[] NO_VERSIONS = new Semver[0];
+    private static final PackageVersions EMPTY = new PackageVersions(NO_VERSIONS);
+
+    /**
+     * Orders the versions as {@link Semver#compareTo(Semver)}, without the wildcards of the NPM versions.
+     */
+    static final Comparator<Semver> ORDER = new Comparator<Semver>() {
+        @Override public int compare(Semver version1, Semver version2) {
+            if (version1.hasMinor() && version1.hasPatch() && version2.hasMinor() && version2.hasPatch()) {
+                return version1.compareTo(version2);
+            }
+            return version1.withMissingPartsAsZero(SemverType.STRICT)
+                    .compareTo(version2.withMissingPartsAsZero(SemverType.STRICT));
+        }
+    };
+
+    private final ConcurrentMap<String, PackageVersions> packages = new ConcurrentHashMap<String, PackageVersions>();
+
+    /**
+     * Adds a version to a package.
+     *
+     * @param packageName the name of the package
+     * @param version the version
+     *
+     * @return true if the version was added, false if the package already had it
+     */
+    public boolean add(String packageName, Semver version) {
+        return this.addAll(packageName, Collections.singletonList(version)) == 1;
+    }
+
+    /**
+     * Adds versions to a package, atomically: the readers see all of them or none.
+     *
+     * @param packageName the name of the package
+     * @param versions the versions, in any order
+     *
+     * @return the number of versions that were added
+     */
+    public int addAll(String packageName, Collection<Semver> versions) {
+        checkPackageName(packageName);
+        Semver[] batch = sortedDistinct(versions);
+        if (batch.length == 0) {
+            return 0;
+        }
+        while (true) {
+            PackageVersions current = this.packages.get(packageName);
+            Semver[] merged = merge(current == null ? NO_VERSIONS : current.versions, batch);
+            int added = merged.length - (current == null ? 0 : current.versions.length);
+            if (added == 0) {
+                return 0;
+            }
+            PackageVersions updated = new PackageVersions(merged);
+            if (current == null ? this.packages.putIfAbsent(packageName, updated) == null
+                    : this.packages.replace(packageName, current, updated)) {
+                return added;
+            }
+        }
+    }
+
+    /**
+     * Adds the versions of many packages. Each package is updated atomically, but the readers may see the new versions
+     * of a package before the ones of another package.
+     *
+     * @param versionsByPackage the versions of each package, in any order
+     *
+     * @return the number of versions that were added
+     */
+    public int addAll(Map<String, ? extends Collection<Semver>> versionsByPackage) {
+        int added = 0;
+        for (Map.Entry<String, ? extends Collection<Semver>> entry : versionsByPackage.entrySet()) {
+            added += this.addAll(entry.getKey(), entry.getValue());
+        }
+        return added;
+    }
+
+    /**
+     * Removes a version from a package. A package without versions is removed.
+     *
+     * @param packageName the name of the package
+     * @param version the version
+     *
+     * @return true if the version was removed, false if the package did not have it
+     */
+    public boolean remove(String packageName, Semver version) {
+        checkPackageName(packageName);
+        while (true) {
+            PackageVersions current = this.packages.get(packageName);
+            int index = current == null ? -1 : Arrays.binarySearch(current.versions, version, ORDER);
+            if (index < 0) {
+                return false;
+            }
+            Semver[] versions = new Semver[current.versions.length - 1];
+            System.arraycopy(current.versions, 0, versions, 0, index);
+            System.arraycopy(current.versions, index + 1, versions, index, versions.length - index);
+            if (versions.length == 0 ? this.packages.remove(packageName, current)
+                    : this.packages.replace(packageName, current, new PackageVersions(versions))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes all the packages.
+     */
+    public void clear() {
+        this.packages.clear();
+    }
+
+    /**
+     * @return the names of the packages that have versions (a live view)
+     */
+    public Set<String> getPackages() {
+        return Collections.unmodifiableSet(this.packages.keySet());
+    }
+
+    /**
+     * @param packageName the name of the package
+     *
+     * @return a snapshot of the versions of the package, that later updates do not change (empty for an unknown
+     * package)
+     */
+    public PackageVersions getVersions(String packageName) {
+        checkPackageName(packageName);
+        PackageVersions versions = this.packages.get(packageName);
+        return versions == null ? EMPTY : versions;
+    }
+
+    /**
+     * @see PackageVersions#latestSatisfying(Requirement)
+     *
+     * @param packageName the name of the package
+     * @param requirement the requirement
+     *
+     * @return the greatest version of the package that satisfies the requirement, or null if there is none
+     */
+    public Semver latestSatisfying(String packageName, Requirement requirement) {
+        return this.getVersions(packageName).latestSatisfying(requirement);
+    }
+
+    /**
+     * @see PackageVersions#allSatisfying(Requirement)
+     *
+     * @param packageName the name of the package
+     * @param requirement the requirement
+     *
+     * @return the versions of the package that satisfy the requirement, in ascending order
+     */
+    public List<Semver> allSatisfying(String packageName, Requirement requirement) {
+        return this.getVersions(packageName).allSatisfying(requirement);
+    }
+
+    /**
+     * @see PackageVersions#latestStable()
+     *
+     * @param packageName the name of the package
+     *
+     * @return the greatest stable version of the package, or null if there is none
+     */
+    public Semver latestStable(String packageName) {
+        return this.getVersions(packageName).latestStable();
+    }
+
+    /**
+     * @see PackageVersions#range(Semver, boolean, Semver, boolean)
+     *
+     * @param packageName the name of the package
+     * @param lower the lower bound, or null for no lower bound
+     * @param lowerInclusive whether the lower bound is in the range
+     * @param upper the upper bound, or null for no upper bound
+     * @param upperInclusive whether the upper bound is in the range
+     *
+     * @return the versions of the package between the bounds, in ascending order
+     */
+    public List<Semver> range(String packageName, Semver lower, boolean lowerInclusive, Semver upper,
+                              boolean upperInclusive) {
+        return this.getVersions(packageName).range(lower, lowerInclusive, upper, upperInclusive);
+    }
+
+    private static void checkPackageName(String packageName) {
+        if (packageName == null) {
+            throw new IllegalArgumentException("The package name is required.");
+        }
+    }
+
+    private static Semver[] sortedDistinct(Collection<Semver> versions) {
+        Semver[] sorted = versions.toArray(new Semver[versions.size()]);
+        for (Semver version : sorted) {
+            if (version == null) {
+                throw new IllegalArgumentException("The versions cannot be null.");
+            }
+        }
+        Arrays.sort(sorted, ORDER);
+        int count = 0;
+        for (Semver version : sorted) {
+            if (count == 0 || ORDER.compare(sorted[count - 1], version) != 0) {
+                sorted[count++] = version;
+            }
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * @return the union of two sorted arrays without duplicates, the versions of the first one being kept
+     */
+    private static Semver[] merge(Semver[] current, Semver[] batch) {
+        Semver[] merged = new Semver[current.length + batch.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < current.length && j < batch.length) {
+            int cmp = ORDER.compare(current[i], batch[j]);
+            if (cmp <= 0) {
+                merged[k++] = current[i++];
+                if (cmp == 0) j++;
+            } else {
+                merged[k++] = batch[j++];
+            }
+        }
+        while (i < current.length) merged[k++] = current[i++];
+        while (j < batch.length) merged[k++] = batch[j++];
+        return k == merged.length ? merged : Arrays.copyOf(merged, k);
+    }
+
+    @Override public String toString() {
+        return "VersionRegistry{" +
+                "packages=" + this.packages.size() +
+                '}';
+    }
+
+    /**
+     * An immutable snapshot of the versions of a package, sorted in ascending order.
+     */
+    public static class PackageVersions {
+        private final Semver[] versions;
+        private final List<Semver> list;
+        private final Semver latestStable;
+
+        private PackageVersions(Semver[] versions) {
+            this.versions = versions;
+            this.list = Collections.unmodifiableList(Arrays.asList(versions));
+            Semver latestStable = null;
+            for (int i = versions.length - 1; i >= 0 && latestStable == null; i--) {
+                if (versions[i].isStable()) {
+                    latestStable = versions[i];
+                }
+            }
+            this.latestStable = latestStable;
+        }
+
+        /**
+         * @return the versions, in ascending order
+         */
+        public List<Semver> getVersions() {
+            return this.list;
+        }
+
+        public int size() {
+            return this.versions.length;
+        }
+
+        public boolean isEmpty() {
+            return this.versions.length == 0;
+        }
+
+        /**
+         * @param version the version
+         *
+         * @return true if the package has the version ("1.2" and "1.2.0" being the same version)
+         */
+        public boolean contains(Semver version) {
+            return Arrays.binarySearch(this.versions, version, ORDER) >= 0;
+        }
+
+        /**
+         * @return the greatest version, or null if there is none
+         */
+        public Semver latest() {
+            return this.versions.length == 0 ? null : this.versions[this.versions.length - 1];
+        }
+
+        /**
+         * @see Semver#isStable()
+         *
+         * @return the greatest stable version, or null if there is none
+         */
+        public Semver latestStable() {
+            return this.latestStable;
+        }
+
+        /**
+         * @see Requirement#maxSatisfyingSorted(List)
+         *
+         * @param requirement the requirement
+         *
+         * @return the greatest version that satisfies the requirement, or null if there is none
+         *
+         * @throws SemverException if the requirement is not made of ranges combined with AND and OR operators
+         */
+        public Semver latestSatisfying(Requirement requirement) {
+            return requirement.maxSatisfyingSorted(this.list);
+        }
+
+        /**
+         * @see Requirement#allSatisfyingSorted(List)
+         *
+         * @param requirement the requirement
+         *
+         * @return the versions that satisfy the requirement, in ascending order
+         *
+         * @throws SemverException if the requirement is not made of ranges combined with AND and OR operators
+         */
+        public List<Semver> allSatisfying(Requirement requirement) {
+            return requirement.allSatisfyingSorted(this.list);
+        }
+
+        /**
+         * Returns the versions between two bounds, with two binary searches. The missing minor and patch parts of the
+         * bounds are 0.
+         *
+         * @param lower the lower bound, or null for no lower bound
+         * @param lowerInclusive whether the lower bound is in the range
+         * @param upper the upper bound, or null for no upper bound
+         * @param upperInclusive whether the upper bound is in the range
+         *
+         * @return a view of the versions between the bounds, in ascending order
+         */
+        public List<Semver> range(Semver lower, boolean lowerInclusive, Semver upper, boolean upperInclusive) {
+            int from = lower == null ? 0 : firstAbove(lower, !lowerInclusive);
+            int to = upper == null ? this.versions.length : firstAbove(upper, upperInclusive);
+            return from >= to ? Collections.<Semver>emptyList() : this.list.subList(from, to);
+        }
+
+        /**
+         * @return the index of the first version greater than the bound (or equal to it when not strict)
+         */
+        private int firstAbove(Semver bound, boolean strict) {
+            int low = 0;
+            int high = this.versions.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int cmp = ORDER.compare(this.versions[middle], bound);
+                if (cmp > 0 || (cmp == 0 && !strict)) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        @Override public String toString() {
+            return this.list.toString();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.vdurmont.semver4j.RandomVersions.randomVersion;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class CompiledRequirementTest {
+    private static final String[] VERSION_SUFFIXES = { "", "", "", "-0", "-alpha", "-beta.2", "-RC.1" };
+    private static final String[] REQUIREMENT_SUFFIXES = { "", "", "", "-alpha.0", "-alpha", "-beta.2", "-RC.1" };
+    private static final String[] NO_SUFFIXES = { "" };
+
+    @Test public void compile_merges_the_ranges_into_intervals() {
+        assertIntervals("[1.2.3,2.0.0)", Requirement.buildNPM("^1.2.3"));
+        assertIntervals("[1.2.0,1.3.0)", Requirement.buildNPM("~1.2"));
+        assertIntervals("(,1.0.0),[1.2.0,1.3.0),(2.0.0,)", Requirement.buildNPM("<1.0.0 || 1.2.x || >2.0.0"));
+        assertIntervals("[1.0.0,3.0.0)", Requirement.buildNPM("^1.0.0 || ^2.0.0"));
+        assertIntervals("[1.0.0,2.0.0]", Requirement.buildNPM(">=1.0.0 <=1.5.0 || 1.2.0 - 2.0.0"));
+        assertIntervals("[1.2.3,1.2.3]", Requirement.buildStrict("1.2.3"));
+        assertIntervals("[1.2.0,1.3.0)", Requirement.buildIvy("1.2.+"));
+        assertIntervals("(1.0.0,2.0.0]", Requirement.buildIvy("]1.0,2.0]"));
+    }
+
+    @Test public void compile_an_empty_requirement() {
+        CompiledRequirement compiled = Requirement.buildNPM(">2.0.0 <1.0.0").compile();
+        assertIntervals("{}", compiled.getRequirement());
+        assertFalse(compiled.isSatisfiedBy("1.5.0"));
+    }
+
+    @Test public void the_missing_parts_are_wildcards_for_npm_versions_only() {
+        Requirement requirement = Requirement.buildLoose("1.2");
+        CompiledRequirement compiled = requirement.compile();
+        assertEquals("[1.2.0,1.2.0]", compiled.getIntervals(false, false).toString());
+        assertEquals("[1.2.0-0,1.3.0-0)", compiled.getIntervals(true, false).toString());
+
+        assertTrue(compiled.isSatisfiedBy(new Semver("1.2.0", SemverType.LOOSE)));
+        assertFalse(compiled.isSatisfiedBy(new Semver("1.2.5", SemverType.LOOSE)));
+        assertTrue(compiled.isSatisfiedBy(new Semver("1.2.5", SemverType.NPM)));
+        assertTrue(compiled.isSatisfiedBy(new Semver("1.2.5-beta", SemverType.NPM)));
+        assertFalse(compiled.isSatisfiedBy(new Semver("1.3.0-0", SemverType.NPM)));
+    }
+
+    @Test public void pre_releases_are_only_allowed_for_the_versions_of_the_ranges() {
+        CompiledRequirement compiled = Requirement.buildNPM("^1.2.3-beta.2").compile();
+        assertEquals("[1.2.3-beta.2,1.2.3)", compiled.getIntervals(false, true).toString());
+        assertTrue(compiled.isSatisfiedBy("1.2.3-beta.4"));
+        assertTrue(compiled.isSatisfiedBy("1.2.3"));
+        assertTrue(compiled.isSatisfiedBy("1.5.0"));
+        assertFalse(compiled.isSatisfiedBy("1.2.3-beta.1"));
+        assertFalse(compiled.isSatisfiedBy("1.2.4-alpha"));
+    }
+
+    @Test public void pre_releases_of_an_or_are_checked_per_group() {
+        CompiledRequirement compiled = Requirement.buildNPM(">=1.0.0-rc.1 <1.1.0 || >=2.0.0 <3.0.0").compile();
+        assertTrue(compiled.isSatisfiedBy("1.0.0-rc.2"));
+        assertFalse(compiled.isSatisfiedBy("2.0.1-rc.1"));
+        assertTrue(compiled.isSatisfiedBy("2.0.1"));
+    }
+
+    @Test public void isSatisfiedBy_with_a_string_uses_the_same_type_as_the_requirement() {
+        CompiledRequirement compiled = Requirement.buildNPM("1.2").compile();
+        assertTrue(compiled.isSatisfiedBy("1.2.5"));
+        try {
+            compiled.isSatisfiedBy("1.2");
+            fail("Should have thrown a SemverException");
+        } catch (SemverException e) {
+            // Expected: the version is strict, as with Requirement.isSatisfiedBy
+        }
+        assertTrue(Requirement.buildLoose("1.2").compile().isSatisfiedBy("1.2"));
+    }
+
+    @Test public void compile_shares_the_identical_interval_sets() {
+        CompiledRequirement compiled = Requirement.buildNPM("^1.2.3").compile();
+        assertSame(compiled.getIntervals(false, false), compiled.getIntervals(true, false));
+        assertSame(compiled.getIntervals(false, true), compiled.getIntervals(true, true));
+    }
+
+    @Test public void compile_a_requirement_that_is_not_a_tree_of_ranges_fails() {
+        Requirement requirement = new Requirement(null, Requirement.buildStrict("1.2.3"), null, Requirement.buildStrict("1.2.4"));
+        try {
+            requirement.compile();
+            fail("Should have thrown a SemverException");
+        } catch (SemverException e) {
+            // Expected
+        }
+    }
+
+    @Test public void compiled_requirements_give_the_same_answers_as_the_trees() {
+        Random random = new Random(0);
+        List<Semver> versions = new ArrayList<Semver>();
+        SemverType[] types = SemverType.values();
+        for (int i = 0; i < 300; i++) {
+            SemverType type = types[random.nextInt(types.length)];
+            versions.add(new Semver(randomVersion(random, type != SemverType.STRICT, VERSION_SUFFIXES), type));
+        }
+        String[] operators = { "", "=", "<", "<=", ">", ">=", "~", "^" };
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(4); j >= 0; j--) {
+                if (sb.length() > 0) {
+                    sb.append(random.nextInt(3) == 0 ? " || " : " ");
+                }
+                String operator = operators[random.nextInt(operators.length)];
+                // The tokenizer reads "<1-0" or "1.0.0 2-alpha" as hyphen ranges
+                sb.append(operator).append(randomVersion(random, true, operator.isEmpty() ? NO_SUFFIXES : REQUIREMENT_SUFFIXES));
+            }
+            Requirement requirement = Requirement.buildNPM(sb.toString());
+            assertSameAnswers(requirement, versions);
+        }
+        for (String ivy : new String[] { "1.+", "1.2.+", "[1.0,2.0[", "]1.0,2.0.1]", "(,1.5]", "[1.1.0,)", "latest.release",
+                "(,1.0],[1.2,)", "[2.0,2.1),[0.1,1.0],(1.0,1.5)" }) {
+            assertSameAnswers(Requirement.buildIvy(ivy), versions);
+        }
+        for (String cocoapods : new String[] { "~> 1.2", "~> 1.2.1", "> 0.1 < 1.2.3-rc", "0.1" }) {
+            assertSameAnswers(Requirement.buildCocoapods(cocoapods), versions);
+        }
+    }
+
+    @Test public void satisfying_versions_of_sorted_lists_are_the_same_as_with_a_scan() {
+        Random random = new Random(0);
+        List<Semver> versions = new ArrayList<Semver>();
+        for (int i = 0; i < 300; i++) {
+            versions.add(new Semver(randomVersion(random, false, VERSION_SUFFIXES), SemverType.NPM));
+        }
+        Collections.sort(versions);
+        List<Semver> shuffled = new ArrayList<Semver>(versions);
+        String[] operators = { "", "<", "<=", ">", ">=", "~", "^" };
+        for (int i = 0; i < 1000; i++) {
+            String range = operators[random.nextInt(operators.length)] + randomVersion(random, true, NO_SUFFIXES);
+            String prerelease = ">=" + randomVersion(random, false, REQUIREMENT_SUFFIXES);
+            Requirement requirement = Requirement.buildNPM(range + " " + prerelease + " || " + range);
+            assertEquals(requirement.toString(), scan(requirement, versions, true), requirement.maxSatisfyingSorted(versions));
+            assertEquals(requirement.toString(), scan(requirement, versions, false), requirement.minSatisfyingSorted(versions));
+            List<Semver> all = new ArrayList<Semver>();
+            for (Semver version : versions) {
+                if (requirement.isSatisfiedBy(version)) {
+                    all.add(version);
+                }
+            }
+            assertEquals(requirement.toString(), all, requirement.allSatisfyingSorted(versions));
+            Collections.shuffle(shuffled, random);
+            assertEquals(requirement.toString(), scan(requirement, versions, true), requirement.maxSatisfying(shuffled));
+            assertEquals(requirement.toString(), scan(requirement, versions, false), requirement.minSatisfying(shuffled));
+        }
+    }
+
+    @Test public void set_operations_and_simplify_give_the_same_answers_as_the_versions() {
+        Random random = new Random(0);
+        // All the versions that can be between the bounds of the requirements
+        String[] suffixes = { "", "-0", "-0.0", "-alpha", "-alpha.0", "-alpha.0.0", "-beta", "-beta.2", "-beta.2.0",
+                "-RC.1", "-RC.1.0" };
+        List<Semver> versions = new ArrayList<Semver>();
+        for (int major = 0; major <= 3; major++) {
+            for (int minor = 0; minor <= 6; minor++) {
+                for (int patch = 0; patch <= 3; patch++) {
+                    for (String suffix : suffixes) {
+                        versions.add(new Semver(major + "." + minor + "." + patch + suffix, SemverType.NPM));
+                        versions.add(new Semver(major + "." + minor + "." + patch + suffix, SemverType.LOOSE));
+                        if (patch == 0) {
+                            versions.add(new Semver(major + "." + minor + suffix, SemverType.NPM));
+                            versions.add(new Semver(major + "." + minor + suffix, SemverType.LOOSE));
+                        }
+                    }
+                }
+            }
+        }
+        String[] operators = { "", "=", "<", "<=", ">", ">=", "~", "^" };
+        List<Requirement> requirements = new ArrayList<Requirement>();
+        for (int i = 0; i < 60; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(3); j >= 0; j--) {
+                // The versions of an AND have an operator, "1.0 2.0" would be read as a single version
+                boolean and = sb.length() > 0 && random.nextInt(3) != 0;
+                if (sb.length() > 0) {
+                    sb.append(and ? " " : " || ");
+                }
+                String operator = operators[(and ? 1 : 0) + random.nextInt(operators.length - (and ? 1 : 0))];
+                sb.append(operator).append(randomVersion(random, true, operator.isEmpty() ? NO_SUFFIXES : REQUIREMENT_SUFFIXES));
+            }
+            requirements.add(Requirement.buildNPM(sb.toString()));
+        }
+        requirements.add(Requirement.buildIvy("(,1.0],[1.2,)"));
+        requirements.add(Requirement.buildIvy("[2.0,2.1),[0.1,1.0],(1.0,1.5)"));
+
+        for (Requirement requirement : requirements) {
+            Requirement simplified = requirement.simplify();
+            for (Semver version : versions) {
+                assertEquals(requirement + " => " + simplified + " / " + version,
+                        requirement.isSatisfiedBy(version), simplified.isSatisfiedBy(version));
+            }
+        }
+        for (Requirement requirement1 : requirements) {
+            for (Requirement requirement2 : requirements) {
+                boolean intersects = false;
+                boolean subset = true;
+                Requirement intersection = requirement1.intersect(requirement2);
+                Requirement union = requirement1.union(requirement2);
+                for (Semver version : versions) {
+                    boolean satisfies1 = requirement1.isSatisfiedBy(version);
+                    boolean satisfies2 = requirement2.isSatisfiedBy(version);
+                    intersects |= satisfies1 && satisfies2;
+                    subset &= !satisfies1 || satisfies2;
+                    assertEquals(satisfies1 && satisfies2, intersection.isSatisfiedBy(version));
+                    assertEquals(satisfies1 && satisfies2, intersection.compile().isSatisfiedBy(version));
+                    assertEquals(satisfies1 || satisfies2, union.compile().isSatisfiedBy(version));
+                }
+                String message = requirement1 + " / " + requirement2;
+                assertEquals(message, intersects, requirement1.intersects(requirement2));
+                assertEquals(message, subset, requirement1.isSubsetOf(requirement2));
+            }
+        }
+    }
+
+    private static Semver scan(Requirement requirement, List<Semver> sortedVersions, boolean max) {
+        Semver result = null;
+        for (Semver version : sortedVersions) {
+            // The last satisfying version is the greatest one
+            if (requirement.isSatisfiedBy(version) && (result == null || max)) {
+                result = version;
+            }
+        }
+        return result;
+    }
+
+    private static void assertSameAnswers(Requirement requirement, List<Semver> versions) {
+        CompiledRequirement compiled = requirement.compile();
+        for (Semver version : versions) {
+            assertEquals(requirement + " / " + version + " (" + version.getType() + ")",
+                    requirement.isSatisfiedBy(version), compiled.isSatisfiedBy(version));
+        }
+    }
+
+    private static void assertIntervals(String expected, Requirement requirement) {
+        assertEquals(expected, requirement.compile().getIntervals(false, false).toString());
+    }
+}
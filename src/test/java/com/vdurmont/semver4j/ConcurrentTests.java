@@ -0,0 +1,91 @@
+package com.vdurmont.semver4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertSame;
+
+/**
+ * Runs a task in many threads at once, for the thread-safety tests.
+ */
+final class ConcurrentTests {
+    private ConcurrentTests() {
+    }
+
+    /**
+     * @see #runConcurrently(int, Task, Runnable)
+     *
+     * @param threadCount the number of threads
+     * @param task the task run by each thread
+     */
+    static void runConcurrently(int threadCount, Task task) throws InterruptedException {
+        runConcurrently(threadCount, task, null);
+    }
+
+    /**
+     * Starts the threads at the same time, runs the other task in the calling thread while they run, and waits for
+     * them.
+     *
+     * @param threadCount the number of threads
+     * @param task the task run by each thread
+     * @param meanwhile the task run by the calling thread once the threads are started, or null
+     *
+     * @throws AssertionError if a thread failed
+     */
+    static void runConcurrently(int threadCount, final Task task, Runnable meanwhile) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            threads.add(new Thread() {
+                @Override public void run() {
+                    try {
+                        start.await();
+                        task.run(thread);
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        try {
+            if (meanwhile != null) {
+                meanwhile.run();
+            }
+        } finally {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+    }
+
+    /**
+     * Checks that all the threads got the same instances.
+     *
+     * @param results the instances got by each thread, indexed by thread
+     */
+    static void assertSameInstances(Object[][] results) {
+        for (int i = 0; i < results[0].length; i++) {
+            for (Object[] threadResults : results) {
+                assertSame(results[0][i], threadResults[i]);
+            }
+        }
+    }
+
+    interface Task {
+        /**
+         * @param thread the index of the thread, from 0
+         */
+        void run(int thread) throws Exception;
+    }
+}
@@ -122,6 +122,7 @@ public class NpmSemverTest {
             { "2.0.0", "=2", true, },
             { "2.0.1", "=2", true, },
             { "2.0.1", "=2.0.0", false, },
+            { "2.1.0", "=2.0", false, },
             { "1.9.9", "=2.0.0", false, },
             { "1.9.9", "=2.0", false, },
             { "1.9.9", "=2", false, },
@@ -0,0 +1,27 @@
+package com.vdurmont.semver4j;
+
+import java.util.Random;
+
+/**
+ * Generates random versions with few distinct parts, for the tests that compare the answers of two implementations.
+ */
+final class RandomVersions {
+    private RandomVersions() {
+    }
+
+    /**
+     * @param random the random generator
+     * @param allowMissingParts whether the minor and patch parts may be missing
+     * @param suffixes the suffixes to pick from (repeat "" to make the pre-releases rarer)
+     *
+     * @return a version whose parts are between 0 and 2
+     */
+    static String randomVersion(Random random, boolean allowMissingParts, String[] suffixes) {
+        int parts = allowMissingParts ? 1 + random.nextInt(3) : 3;
+        StringBuilder sb = new StringBuilder().append(random.nextInt(3));
+        for (int i = 1; i < parts; i++) {
+            sb.append('.').append(random.nextInt(3));
+        }
+        return sb.append(suffixes[random.nextInt(suffixes.length)]).toString();
+    }
+}
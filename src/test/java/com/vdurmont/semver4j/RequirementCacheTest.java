@@ -0,0 +1,141 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+import com.vdurmont.semver4j.SemverCache.EvictionPolicy;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.vdurmont.semver4j.ConcurrentTests.assertSameInstances;
+import static com.vdurmont.semver4j.ConcurrentTests.runConcurrently;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class RequirementCacheTest {
+    @After public void disableTheCache() {
+        Requirement.setCache(null);
+    }
+
+    @Test public void get_returns_the_same_instance() {
+        RequirementCache cache = new RequirementCache(10);
+        Requirement requirement = cache.get("^1.2.3", SemverType.NPM);
+        assertEquals(Requirement.buildNPM("^1.2.3"), requirement);
+        assertSame(requirement, cache.get("^1.2.3", SemverType.NPM));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test public void get_is_keyed_by_the_type() {
+        RequirementCache cache = new RequirementCache(10);
+        Requirement npm = cache.get("1.2", SemverType.NPM);
+        Requirement loose = cache.get("1.2", SemverType.LOOSE);
+        assertNotSame(npm, loose);
+        assertEquals(Requirement.buildNPM("1.2"), npm);
+        assertEquals(Requirement.buildLoose("1.2"), loose);
+        assertEquals(2, cache.size());
+    }
+
+    @Test public void get_with_an_invalid_requirement_is_not_cached() {
+        RequirementCache cache = new RequirementCache(10);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("1.x", SemverType.IVY);
+                fail("Should have thrown a SemverException");
+            } catch (SemverException e) {
+                // Expected
+            }
+        }
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test public void capacity_is_never_exceeded() {
+        RequirementCache cache = new RequirementCache(100, EvictionPolicy.FIRST_IN_FIRST_OUT);
+        for (int i = 0; i < 1000; i++) {
+            cache.get("^1.0." + i, SemverType.NPM);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getEvictionCount());
+    }
+
+    @Test public void clear_removes_the_requirements() {
+        RequirementCache cache = new RequirementCache(10);
+        Requirement requirement = cache.get("~1.2", SemverType.COCOAPODS);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNotSame(requirement, cache.get("~1.2", SemverType.COCOAPODS));
+    }
+
+    @Test public void the_cache_is_disabled_by_default() {
+        assertNull(Requirement.getCache());
+        assertNotSame(Requirement.buildNPM("^1.2.3"), Requirement.buildNPM("^1.2.3"));
+    }
+
+    @Test public void build_methods_and_satisfies_use_the_cache() {
+        RequirementCache cache = new RequirementCache();
+        Requirement.setCache(cache);
+
+        assertSame(Requirement.buildNPM(">=1.2.3"), Requirement.buildNPM(">=1.2.3"));
+        assertSame(Requirement.buildIvy("1.2.+"), Requirement.of("1.2.+", SemverType.IVY));
+        assertSame(Requirement.buildCocoapods("~> 1.2"), Requirement.buildCocoapods("~> 1.2"));
+        assertSame(Requirement.buildStrict("1.2.3"), Requirement.buildStrict("1.2.3"));
+        assertSame(Requirement.buildLoose("1.2"), Requirement.buildLoose("1.2"));
+        assertEquals(5, cache.size());
+
+        Semver version = new Semver("1.2.5", SemverType.NPM);
+        assertTrue(version.satisfies(">=1.2.3"));
+        assertFalse(version.satisfies("<1.2.3"));
+        assertEquals(6, cache.size());
+        assertEquals(6, cache.getHitCount());
+
+        Requirement.setCache(null);
+        assertNotSame(Requirement.buildNPM(">=1.2.3"), Requirement.buildNPM(">=1.2.3"));
+        assertEquals(6, cache.size());
+    }
+
+    @Test public void is_satisfied_by_a_string_does_not_use_the_version_cache() {
+        SemverCache previous = Semver.getCache();
+        try {
+            SemverCache versions = new SemverCache(10);
+            Semver.setCache(versions);
+            Requirement requirement = Requirement.buildNPM("^1.2.3");
+            assertTrue(requirement.isSatisfiedBy("1.5.0"));
+            assertTrue(new Range("1.2.3", Range.RangeOperator.GTE).isSatisfiedBy("1.5.0"));
+            assertTrue(requirement.compile().isSatisfiedBy("1.5.0"));
+            assertEquals(0, versions.size());
+        } finally {
+            Semver.setCache(previous);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_with_an_invalid_capacity_fails() {
+        new RequirementCache(0);
+    }
+
+    @Test public void get_from_many_threads_returns_canonical_instances() throws InterruptedException {
+        final RequirementCache cache = new RequirementCache(1000);
+        final int threadCount = 8;
+        final int requirementCount = 500;
+        final Requirement[][] results = new Requirement[threadCount][requirementCount];
+        runConcurrently(threadCount, new ConcurrentTests.Task() {
+            @Override public void run(int thread) {
+                for (int i = 0; i < requirementCount; i++) {
+                    results[thread][i] = cache.get(">=1." + i + ".0 <2.0.0", SemverType.NPM);
+                }
+            }
+        });
+
+        assertSameInstances(results);
+        assertEquals(requirementCount, cache.size());
+        assertEquals(threadCount * requirementCount, cache.getHitCount() + cache.getMissCount());
+    }
+}
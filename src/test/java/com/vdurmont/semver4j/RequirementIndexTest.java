@@ -0,0 +1,167 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static com.vdurmont.semver4j.ConcurrentTests.runConcurrently;
+import static com.vdurmont.semver4j.RandomVersions.randomVersion;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class RequirementIndexTest {
+    private static final String[] SUFFIXES = { "", "", "", "-alpha", "-alpha.0", "-beta.2", "-RC.1" };
+
+    @Test public void find_returns_the_payloads_of_the_satisfied_requirements() {
+        RequirementIndex<String> index = new RequirementIndex<String>();
+        index.add(Requirement.buildNPM("<1.2.5"), "CVE-1");
+        index.add(Requirement.buildNPM(">=1.0.0 <1.1.0 || >=1.2.0 <1.2.4"), "CVE-2");
+        index.add(Requirement.buildIvy("[1.2,2.0)"), "CVE-3");
+        index.add(Requirement.buildNPM("^1.2.3-beta"), "CVE-4");
+        index.add(Requirement.buildNPM("*"), "CVE-5");
+
+        assertPayloads(index, "1.2.3", "CVE-1", "CVE-2", "CVE-3", "CVE-4", "CVE-5");
+        assertPayloads(index, "1.2.4", "CVE-1", "CVE-3", "CVE-4", "CVE-5");
+        assertPayloads(index, "1.1.0", "CVE-1", "CVE-5");
+        assertPayloads(index, "2.0.0", "CVE-5");
+        // A group of ranges only allows the pre-releases of its own ranges
+        assertPayloads(index, "1.2.3-rc", "CVE-1", "CVE-4", "CVE-5");
+        assertPayloads(index, "1.2.4-rc", "CVE-1", "CVE-5");
+        assertEquals(5, index.size());
+    }
+
+    @Test public void remove_and_clear() {
+        RequirementIndex<Integer> index = new RequirementIndex<Integer>();
+        RequirementIndex.Entry<Integer> entry1 = index.add(Requirement.buildNPM("^1.0.0"), 1);
+        RequirementIndex.Entry<Integer> entry2 = index.add(Requirement.buildNPM("~1.2.0"), 2);
+        assertEquals(Arrays.asList(1), index.find(Semver.of("1.0.0", SemverType.NPM)));
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)),
+                new HashSet<Integer>(index.find(Semver.of("1.2.1", SemverType.NPM))));
+
+        assertFalse(index.add(entry1));
+        assertTrue(index.remove(entry1));
+        assertFalse(index.remove(entry1));
+        assertEquals(Arrays.asList(2), index.find(Semver.of("1.2.1", SemverType.NPM)));
+        assertEquals(Collections.singletonList(entry2), index.getEntries());
+
+        // A removed entry can be added again
+        assertTrue(index.add(entry1));
+        assertEquals(2, index.size());
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.find(Semver.of("1.2.1", SemverType.NPM)).isEmpty());
+    }
+
+    @Test(expected = SemverException.class)
+    public void add_a_requirement_that_cannot_be_compiled() {
+        new RequirementIndex<String>().add(new Requirement(null, null, null, null), "invalid");
+    }
+
+    @Test public void find_gives_the_same_answers_as_the_requirements() {
+        Random random = new Random(0);
+        List<Semver> versions = new ArrayList<Semver>();
+        for (int i = 0; i < 300; i++) {
+            SemverType type = random.nextBoolean() ? SemverType.NPM : SemverType.LOOSE;
+            versions.add(new Semver(randomVersion(random, type == SemverType.NPM, SUFFIXES), type));
+        }
+        String[] operators = { "", "<", "<=", ">", ">=", "~", "^" };
+        List<RequirementIndex.Entry<Integer>> entries = new ArrayList<RequirementIndex.Entry<Integer>>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(3); j >= 0; j--) {
+                if (sb.length() > 0 && random.nextBoolean()) {
+                    sb.append(" <").append(randomVersion(random, true, SUFFIXES));
+                } else {
+                    sb.append(sb.length() > 0 ? " || " : "").append(operators[random.nextInt(operators.length)])
+                            .append(randomVersion(random, true, SUFFIXES));
+                }
+            }
+            Requirement requirement = i % 10 == 0 ? Requirement.buildIvy("[1." + i % 3 + ",2.0)")
+                    : Requirement.buildNPM(sb.toString());
+            entries.add(new RequirementIndex.Entry<Integer>(requirement, i));
+        }
+
+        RequirementIndex<Integer> index = new RequirementIndex<Integer>();
+        // A bulk load, entries added one by one, and entries removed from the trees and from the buffer
+        index.addAll(entries.subList(0, 1000));
+        for (RequirementIndex.Entry<Integer> entry : entries.subList(1000, 2000)) {
+            index.add(entry);
+        }
+        List<RequirementIndex.Entry<Integer>> expected = new ArrayList<RequirementIndex.Entry<Integer>>(entries);
+        for (int i = 0; i < 2000; i += 3) {
+            index.remove(entries.get(i));
+            expected.remove(entries.get(i));
+        }
+        assertFound(index, expected, versions);
+
+        // Most entries are removed, so the trees are rebuilt
+        for (int i = 0; i < 2000; i++) {
+            if (i % 7 != 0) {
+                index.remove(entries.get(i));
+                expected.remove(entries.get(i));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        assertFound(index, expected, versions);
+    }
+
+    private static void assertFound(RequirementIndex<Integer> index, List<RequirementIndex.Entry<Integer>> entries,
+                                    List<Semver> versions) {
+        for (Semver version : versions) {
+            List<Integer> expected = new ArrayList<Integer>();
+            for (RequirementIndex.Entry<Integer> entry : entries) {
+                if (entry.getRequirement().isSatisfiedBy(version)) {
+                    expected.add(entry.getPayload());
+                }
+            }
+            List<Integer> found = index.find(version);
+            Collections.sort(found);
+            assertEquals(version.toString(), expected, found);
+        }
+    }
+
+    @Test public void find_while_the_index_is_updated() throws InterruptedException {
+        final RequirementIndex<Integer> index = new RequirementIndex<Integer>();
+        // Always found
+        index.add(Requirement.buildNPM("^1.0.0"), -1);
+        final Semver version = Semver.of("1.5.0", SemverType.NPM);
+        runConcurrently(4, new ConcurrentTests.Task() {
+            @Override public void run(int thread) {
+                for (int i = 0; i < 2000; i++) {
+                    if (!index.find(version).contains(-1)) {
+                        throw new AssertionError("Entry not found");
+                    }
+                }
+            }
+        }, new Runnable() {
+            @Override public void run() {
+                List<RequirementIndex.Entry<Integer>> entries = new ArrayList<RequirementIndex.Entry<Integer>>();
+                for (int i = 0; i < 2000; i++) {
+                    entries.add(index.add(Requirement.buildNPM(">=1." + i % 10 + ".0"), i));
+                    if (i % 2 == 1) {
+                        index.remove(entries.get(i - 1));
+                    }
+                }
+            }
+        });
+
+        assertEquals(1001, index.size());
+        assertEquals(601, index.find(version).size());
+    }
+
+    private static void assertPayloads(RequirementIndex<String> index, String version, String... payloads) {
+        List<String> found = index.find(Semver.of(version, SemverType.NPM));
+        Collections.sort(found);
+        assertEquals(version, Arrays.asList(payloads), found);
+    }
+}
@@ -0,0 +1,141 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.vdurmont.semver4j.ConcurrentTests.assertSameInstances;
+import static com.vdurmont.semver4j.ConcurrentTests.runConcurrently;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class RequirementInternerTest {
+    @After public void disableInterningAndTheCache() {
+        Requirement.setInterner(null);
+        Requirement.setCache(null);
+    }
+
+    @Test public void intern_returns_the_same_instance() {
+        RequirementInterner interner = new RequirementInterner();
+        Requirement requirement = interner.intern(Requirement.buildNPM(">=1.2.3 <2.0.0 || 3.x"));
+        assertEquals(Requirement.buildNPM(">=1.2.3 <2.0.0 || 3.x"), requirement);
+        assertSame(requirement, interner.intern(Requirement.buildNPM(">=1.2.3 <2.0.0 || 3.x")));
+        assertSame(requirement, interner.intern(requirement));
+        assertNull(interner.intern((Requirement) null));
+    }
+
+    @Test public void intern_shares_the_ranges_and_the_sub_requirements() {
+        RequirementInterner interner = new RequirementInterner();
+        Requirement caret1 = interner.intern(Requirement.buildNPM("^1.2.3"));
+        Requirement caret2 = interner.intern(Requirement.buildNPM("^1.5.0"));
+        assertSame(caret1.req2, caret2.req2);
+        Requirement group1 = interner.intern(Requirement.buildNPM(">=1.2.3 <2.0.0"));
+        Requirement group2 = interner.intern(Requirement.buildNPM(">=1.2.3 <1.3.0"));
+        assertSame(group1.req1, group2.req1);
+        assertSame(group1.req1.range, group2.andRanges()[0]);
+
+        Requirement first = interner.intern(Requirement.buildNPM("^1.0.0 || ^2.0.0"));
+        Requirement second = interner.intern(Requirement.buildNPM("^2.0.0 || ^3.0.0"));
+        assertSame(first.req2, second.req1);
+        assertSame(first.req2.andRanges()[0], second.req1.andRanges()[0]);
+
+        Range range = interner.intern(new Range("1.2.3", Range.RangeOperator.GTE));
+        assertSame(range, interner.intern(new Range("1.2.3", Range.RangeOperator.GTE)));
+        assertNotSame(range, interner.intern(new Range("1.2.3", Range.RangeOperator.GT)));
+    }
+
+    @Test public void intern_is_keyed_by_the_type_of_the_versions() {
+        RequirementInterner interner = new RequirementInterner();
+        Requirement strict = interner.intern(Requirement.buildStrict("1.2.3"));
+        Requirement npm = interner.intern(Requirement.buildNPM("1.2.3"));
+        assertEquals(strict, npm);
+        assertNotSame(strict, npm);
+        assertEquals(SemverType.NPM, npm.range.version.getType());
+    }
+
+    @Test public void intern_keeps_the_meaning_of_the_requirements() {
+        RequirementInterner interner = new RequirementInterner();
+        Requirement group = Requirement.buildNPM(">=1.2.3-beta <2.0.0");
+        Requirement intersection = Requirement.buildNPM(">=1.2.3-beta").intersect(Requirement.buildNPM("<2.0.0"));
+        Requirement internedGroup = interner.intern(group);
+        Requirement internedIntersection = interner.intern(intersection);
+        assertNotSame(internedGroup, internedIntersection);
+        assertSame(internedGroup.req1, internedIntersection.req1);
+
+        String[] versions = { "1.2.3-beta", "1.2.3-rc", "1.3.0-beta", "1.5.0", "2.0.0-alpha", "2.0.0" };
+        for (String version : versions) {
+            Semver semver = new Semver(version, SemverType.NPM);
+            assertEquals(version, group.isSatisfiedBy(semver), internedGroup.isSatisfiedBy(semver));
+            assertEquals(version, intersection.isSatisfiedBy(semver), internedIntersection.isSatisfiedBy(semver));
+        }
+    }
+
+    @Test public void clear_removes_the_instances() {
+        RequirementInterner interner = new RequirementInterner();
+        Requirement requirement = interner.intern(Requirement.buildNPM("~1.2"));
+        assertEquals(3, interner.size());
+        interner.clear();
+        assertEquals(0, interner.size());
+        assertNotSame(requirement, interner.intern(Requirement.buildNPM("~1.2")));
+    }
+
+    @Test public void interning_is_disabled_by_default() {
+        assertNull(Requirement.getInterner());
+        Requirement requirement1 = Requirement.buildNPM("^1.2.3");
+        Requirement requirement2 = Requirement.buildNPM("^1.2.3");
+        assertNotSame(requirement1, requirement2);
+        assertNotSame(requirement1.req1, requirement2.req1);
+    }
+
+    @Test public void build_methods_and_satisfies_use_the_interner() {
+        RequirementInterner interner = new RequirementInterner();
+        Requirement.setInterner(interner);
+
+        assertSame(Requirement.buildNPM(">=1.2.3"), Requirement.buildNPM(">=1.2.3"));
+        assertSame(Requirement.buildIvy("[1.0,2.0)"), Requirement.of("[1.0,2.0)", SemverType.IVY));
+        assertSame(Requirement.buildCocoapods("~> 1.2"), Requirement.buildCocoapods("~> 1.2"));
+        assertSame(Requirement.buildNPM("1.2.3 || >=2.0.0").req1, Requirement.buildNPM("1.2.3 || <1.0.0").req1);
+
+        Semver version = new Semver("1.2.5", SemverType.NPM);
+        assertTrue(version.satisfies(">=1.2.3"));
+        assertFalse(version.satisfies("<1.2.3"));
+
+        // With the cache, the cached requirements are interned once
+        Requirement.setCache(new RequirementCache());
+        Requirement cached = Requirement.buildNPM("^1.0.0 || ^2.0.0");
+        assertSame(cached, Requirement.buildNPM("^1.0.0 || ^2.0.0"));
+        assertSame(cached.req2, Requirement.buildNPM("^2.0.0 || ^3.0.0").req1);
+
+        Requirement.setInterner(null);
+        Requirement.setCache(null);
+        assertNotSame(Requirement.buildNPM(">=1.2.3"), Requirement.buildNPM(">=1.2.3"));
+    }
+
+    @Test public void intern_from_many_threads_returns_canonical_instances() throws InterruptedException {
+        final RequirementInterner interner = new RequirementInterner();
+        final int threadCount = 8;
+        final int requirementCount = 500;
+        final Requirement[][] results = new Requirement[threadCount][requirementCount];
+        runConcurrently(threadCount, new ConcurrentTests.Task() {
+            @Override public void run(int thread) {
+                for (int i = 0; i < requirementCount; i++) {
+                    results[thread][i] = interner.intern(Requirement.buildNPM(">=1." + i + ".0 <2.0.0"));
+                }
+            }
+        });
+
+        assertSameInstances(results);
+        for (int i = 0; i < requirementCount; i++) {
+            assertSame(results[0][0].req2, results[0][i].req2);
+        }
+        // The lower bounds, the shared upper bound and the groups
+        assertEquals(2 * requirementCount + 1, interner.size());
+    }
+}
@@ -5,11 +5,18 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -261,6 +268,63 @@ public class RequirementTest {
         assertEquals(new Semver("0.0.0"), req.range.version);
     }
 
+    @Test public void buildNPM_with_a_tilde_and_a_greater_than() {
+        assertEquals(Requirement.buildNPM("~1.2.3"), Requirement.buildNPM("~>1.2.3"));
+        assertEquals(Requirement.buildNPM("~1.2"), Requirement.buildNPM("~> 1.2"));
+    }
+
+    @Test public void buildNPM_with_parentheses() {
+        assertEquals(Requirement.buildNPM(">=1.0.0 <2.0.0 || 3.0.0"), Requirement.buildNPM("(>=1.0.0 <2.0.0) || 3.0.0"));
+        assertEquals(Requirement.buildNPM("1.0.0 || 2.0.0"), Requirement.buildNPM("((1.0.0 || 2.0.0))"));
+    }
+
+    @Test public void buildNPM_with_an_invalid_requirement() {
+        String[] requirements = { "<>1.0.0", "1.0.0 - <2.0.0", ">1.0.0 (<2.0.0)", "(1.0.0", "1.0.0)", "1.0.0 ||", "|| 1.0.0", "1.0.0 -" };
+        for (String requirement : requirements) {
+            try {
+                Requirement.buildNPM(requirement);
+                fail("Should have thrown a SemverException: " + requirement);
+            } catch (SemverException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test public void buildNPM_with_many_alternatives() {
+        StringBuilder sb = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            if (i > 0) {
+                sb.append(" || ");
+                expected.append(" || ");
+            }
+            sb.append(i).append(".0.0");
+            expected.append('=').append(i).append(".0.0");
+        }
+        Requirement requirement = Requirement.buildNPM(sb.toString());
+
+        assertTrue(requirement.isSatisfiedBy("9999.0.0"));
+        assertFalse(requirement.isSatisfiedBy("1.2.3"));
+        assertTrue(requirement.compile().isSatisfiedBy("5000.0.0"));
+        assertEquals(expected.toString(), requirement.toString());
+        assertEquals(Requirement.buildNPM(sb.toString()), requirement);
+        assertEquals(Requirement.buildNPM(sb.toString()).hashCode(), requirement.hashCode());
+    }
+
+    @Test public void buildNPM_with_many_ranges() {
+        StringBuilder sb = new StringBuilder(">=1.0.0");
+        for (int i = 10000; i > 1; i--) {
+            sb.append(" <").append(i).append(".0.0");
+        }
+        Requirement requirement = Requirement.buildNPM(sb.toString());
+
+        assertTrue(requirement.isSatisfiedBy("1.5.0"));
+        assertFalse(requirement.isSatisfiedBy("2.0.0"));
+        assertFalse(requirement.isSatisfiedBy("1.5.0-beta"));
+        assertTrue(requirement.compile().isSatisfiedBy("1.5.0"));
+        assertEquals(sb.toString(), requirement.toString());
+    }
+
     @Test public void buildCocoapods_with_a_tilde() {
         Requirement[] reqs = new Requirement[]{
                 Requirement.buildCocoapods(" ~> 1.2.3 "),
@@ -321,6 +385,58 @@ public class RequirementTest {
         assertIsRange(Requirement.buildIvy("(,2.0["), "2.0.0", Range.RangeOperator.LT);
     }
 
+    @Test public void buildIvy_with_parentheses() {
+        rangeTest(Requirement.buildIvy("(1.0,2.0)"), "1.0.0", true, "2.0.0", true);
+        rangeTest(Requirement.buildIvy("[1.0,2.0)"), "1.0.0", false, "2.0.0", true);
+        assertIsRange(Requirement.buildIvy("(1.0,)"), "1.0.0", Range.RangeOperator.GT);
+        assertIsRange(Requirement.buildIvy("(,2.0)"), "2.0.0", Range.RangeOperator.LT);
+    }
+
+    @Test public void buildIvy_with_a_union_of_intervals() {
+        Requirement req = Requirement.buildIvy("[2.0,3.0),(,1.0],[1.2,1.5)");
+        assertEquals("<=1.0.0 || >=1.2.0 <1.5.0 || >=2.0.0 <3.0.0", req.toString());
+        for (String version : new String[] { "0.5.0", "1.0.0", "1.2.0", "1.4.9", "2.0.0", "2.9.9" }) {
+            assertTrue(version, req.isSatisfiedBy(version));
+        }
+        for (String version : new String[] { "1.0.1", "1.1.0", "1.5.0", "1.9.9", "3.0.0", "4.0.0" }) {
+            assertFalse(version, req.isSatisfiedBy(version));
+        }
+
+        assertEquals(">=1.0.0 <3.0.0", Requirement.buildIvy("[1.0,2.0],[1.5,3.0)").toString());
+        assertEquals(">=1.0.0 <=3.0.0", Requirement.buildIvy("[1.0,2.0),[2.0,3.0]").toString());
+    }
+
+    @Test public void buildIvy_with_many_intervals() {
+        // All the versions but 1.0.0, 1.0.1... 1.0.999
+        StringBuilder sb = new StringBuilder("(,1.0.0)");
+        for (int i = 1; i < 1000; i++) {
+            sb.append(",(1.0.").append(i - 1).append(",1.0.").append(i).append(')');
+        }
+        sb.append(",(1.0.999,)");
+        Requirement req = Requirement.buildIvy(sb.toString());
+
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(req.isSatisfiedBy("1.0." + i));
+        }
+        assertTrue(req.isSatisfiedBy("0.9.0"));
+        assertTrue(req.isSatisfiedBy("1.0.1000"));
+        assertTrue(req.isSatisfiedBy("2.0.0"));
+        assertTrue(req.compile().isSatisfiedBy("2.0.0"));
+        assertFalse(req.compile().isSatisfiedBy("1.0.500"));
+    }
+
+    @Test public void buildIvy_with_an_invalid_requirement() {
+        String[] requirements = { "", "1.2.3.+", "x.+", "99999999999.+", "latest.", "[1.0,2.0", "[1.0,2.0]]", "x[1.0,2.0]", "[,2.0]", "(,)", "[1.0.0.0,2.0]", "[1.0,2.0],", "[1.0,2.0],1.2" };
+        for (String requirement : requirements) {
+            try {
+                Requirement.buildIvy(requirement);
+                fail("Should have thrown a SemverException: " + requirement);
+            } catch (SemverException e) {
+                // Expected
+            }
+        }
+    }
+
     @Test public void isSatisfiedBy_with_a_loose_type() {
         Requirement req = Requirement.buildLoose("1.3.2");
 
@@ -401,6 +517,124 @@ public class RequirementTest {
         verify(req2).isSatisfiedBy(version);
     }
 
+    @Test public void isSatisfiedBy_with_an_OR_in_an_AND() {
+        // >=1.0.0 (<2.0.0 || >3.0.0)
+        Requirement or = new Requirement(null, Requirement.buildNPM("<2.0.0"), Requirement.RequirementOperator.OR, Requirement.buildNPM(">3.0.0"));
+        Requirement requirement = new Requirement(null, Requirement.buildNPM(">=1.0.0"), Requirement.RequirementOperator.AND, or);
+
+        assertTrue(requirement.isSatisfiedBy("1.5.0"));
+        assertTrue(requirement.isSatisfiedBy("3.1.0"));
+        assertFalse(requirement.isSatisfiedBy("0.5.0"));
+        assertFalse(requirement.isSatisfiedBy("2.5.0"));
+    }
+
+    @Test public void isSatisfiedBy_with_prereleases_in_an_AND() {
+        Requirement requirement = Requirement.buildNPM(">=1.2.3-beta.2 <1.3.0 >=1.0.0");
+
+        assertTrue(requirement.isSatisfiedBy("1.2.3-beta.3"));
+        assertTrue(requirement.isSatisfiedBy("1.2.4"));
+        assertFalse(requirement.isSatisfiedBy("1.2.3-beta.1"));
+        assertFalse(requirement.isSatisfiedBy("1.2.4-beta.3"));
+    }
+
+    @Test public void maxSatisfying_and_minSatisfying() {
+        List<Semver> versions = Arrays.asList(new Semver("1.2.0"), new Semver("2.0.0"), new Semver("1.3.0-beta"),
+                new Semver("1.0.0"), new Semver("1.4.1"), new Semver("0.9.0"));
+        Requirement requirement = Requirement.buildNPM("^1.1.0");
+
+        assertEquals(new Semver("1.4.1"), requirement.maxSatisfying(versions));
+        assertEquals(new Semver("1.2.0"), requirement.minSatisfying(versions));
+        assertNull(Requirement.buildNPM(">3.0.0").maxSatisfying(versions));
+        assertNull(Requirement.buildNPM(">3.0.0").minSatisfying(versions));
+    }
+
+    @Test public void maxSatisfyingSorted_and_minSatisfyingSorted() {
+        List<Semver> versions = new ArrayList<Semver>();
+        for (int i = 0; i < 5000; i++) {
+            versions.add(new Semver(i / 100 + "." + i % 100 + ".0"));
+            versions.add(new Semver(i / 100 + "." + i % 100 + ".1-rc.1"));
+        }
+        Collections.sort(versions);
+        Requirement requirement = Requirement.buildNPM("~12.5 || ^13.4.0 <13.50");
+
+        assertEquals(new Semver("13.49.0"), requirement.maxSatisfyingSorted(versions));
+        assertEquals(new Semver("12.5.0"), requirement.minSatisfyingSorted(versions));
+        assertEquals(new Semver("13.4.1-rc.1"), Requirement.buildNPM(">=13.4.1-rc.1 <13.5.0").maxSatisfyingSorted(versions));
+        assertEquals(new Semver("13.4.1-rc.1"), Requirement.buildNPM(">=13.4.1-rc.1").minSatisfyingSorted(versions));
+        assertNull(Requirement.buildNPM("<0.0.0").minSatisfyingSorted(versions));
+        assertNull(Requirement.buildNPM(">50.0.0").maxSatisfyingSorted(versions));
+        assertNull(requirement.maxSatisfyingSorted(Collections.<Semver>emptyList()));
+    }
+
+    @Test public void intersects() {
+        assertTrue(Requirement.buildNPM("^1.2.0").intersects(Requirement.buildNPM("~1.5")));
+        assertTrue(Requirement.buildNPM("<=1.0.0").intersects(Requirement.buildNPM(">=1.0.0 <2.0.0")));
+        assertFalse(Requirement.buildNPM("<1.0.0").intersects(Requirement.buildNPM(">=1.0.0 <2.0.0")));
+        assertFalse(Requirement.buildNPM("^1.2.0").intersects(Requirement.buildNPM("^2.0.0 || <1.0.0")));
+        // No release is between the bounds, and no pre-release is allowed by the group
+        assertFalse(Requirement.buildNPM(">1.2.3-alpha <1.2.3-beta").intersects(Requirement.buildNPM(">=1.0.0 <2.0.0")));
+        assertTrue(Requirement.buildNPM(">1.2.3-alpha <1.2.3-beta").intersects(Requirement.buildNPM("<1.2.3")));
+        assertFalse(Requirement.buildNPM(">1.2.3 <2.0.0").intersects(Requirement.buildNPM("<1.2.4-alpha")));
+        assertTrue(Requirement.buildNPM(">1.2.3").intersects(Requirement.buildNPM("<1.2.4-alpha")));
+        assertTrue(Requirement.buildIvy("(,1.0],[1.2,)").intersects(Requirement.buildNPM("~1.2.5")));
+        assertFalse(Requirement.buildIvy("(,1.0],[1.2,)").intersects(Requirement.buildNPM(">1.0.0 <1.2.0")));
+    }
+
+    @Test public void isSubsetOf() {
+        assertTrue(Requirement.buildNPM("^1.2.3").isSubsetOf(Requirement.buildNPM("1.x")));
+        assertTrue(Requirement.buildNPM("~1.2.3 || ~1.4.0").isSubsetOf(Requirement.buildNPM(">=1.2.0 <1.5.0")));
+        assertFalse(Requirement.buildNPM("1.x").isSubsetOf(Requirement.buildNPM("^1.2.3")));
+        assertFalse(Requirement.buildNPM("^1.2.3-beta").isSubsetOf(Requirement.buildNPM("1.x")));
+        assertTrue(Requirement.buildNPM("^1.2.3-beta.2").isSubsetOf(Requirement.buildNPM(">=1.2.3-beta <2.0.0")));
+        assertFalse(Requirement.buildNPM("<2.0.0").isSubsetOf(Requirement.buildNPM(">=0.0.0 <2.0.0")));
+        assertTrue(Requirement.buildNPM(">2.0.0 <1.0.0").isSubsetOf(Requirement.buildNPM("=3.0.0")));
+        assertTrue(Requirement.buildIvy("[1.0,2.0)").isSubsetOf(Requirement.buildIvy("(,1.0],[1.0.1,)")));
+    }
+
+    @Test public void intersect_and_union() {
+        Requirement requirement1 = Requirement.buildNPM(">=1.0.0-beta <2.0.0");
+        Requirement requirement2 = Requirement.buildNPM(">=1.5.0-rc <3.0.0");
+
+        Requirement intersection = requirement1.intersect(requirement2);
+        assertTrue(intersection.isSatisfiedBy("1.6.0"));
+        assertFalse(intersection.isSatisfiedBy("2.1.0"));
+        // Each requirement only allows its own pre-releases
+        assertFalse(intersection.isSatisfiedBy("1.5.0-rc.1"));
+        assertFalse(intersection.compile().isSatisfiedBy("1.5.0-rc.1"));
+        assertNotEquals(Requirement.buildNPM(">=1.0.0-beta <2.0.0 >=1.5.0-rc <3.0.0"), intersection);
+        assertTrue(intersection.isSubsetOf(requirement1));
+        assertTrue(intersection.isSubsetOf(requirement2));
+
+        Requirement union = requirement1.union(requirement2);
+        assertTrue(union.isSatisfiedBy("1.0.0-beta.1"));
+        assertTrue(union.isSatisfiedBy("2.5.0"));
+        assertFalse(union.isSatisfiedBy("1.1.0-beta"));
+        assertFalse(union.isSatisfiedBy("3.0.0"));
+        assertTrue(requirement1.isSubsetOf(union));
+        assertTrue(union.isSubsetOf(Requirement.buildNPM("<3.0.0")));
+        assertFalse(union.isSubsetOf(Requirement.buildNPM(">=1.0.0-beta <3.0.0")));
+    }
+
+    @Test public void isSatisfiedBy_with_a_long_AND_chain_built_by_hand() throws ReflectiveOperationException {
+        // >=1.0.0 >=1.0.1 ... >=1.0.9999 <2.0.0
+        Requirement requirement = Requirement.buildNPM(">=1.0.0");
+        for (int i = 1; i < 10000; i++) {
+            requirement = new Requirement(null, requirement, Requirement.RequirementOperator.AND, Requirement.buildNPM(">=1.0." + i));
+        }
+        Requirement inner = requirement;
+        requirement = new Requirement(null, requirement, Requirement.RequirementOperator.AND, Requirement.buildNPM("<2.0.0"));
+
+        assertTrue(requirement.isSatisfiedBy("1.0.9999"));
+        assertFalse(requirement.isSatisfiedBy("1.0.9998"));
+        assertFalse(requirement.isSatisfiedBy("2.0.0"));
+        assertEquals(10001, requirement.andRanges().length);
+        // Only the evaluated node flattens the ranges of the group
+        Field andGroup = Requirement.class.getDeclaredField("andGroup");
+        andGroup.setAccessible(true);
+        assertNull(andGroup.get(inner));
+        assertNull(andGroup.get(inner.req1));
+    }
+
     @Test public void npm_isSatisfiedBy_with_an_empty_string() {
         Requirement req = Requirement.buildNPM("");
         assertTrue(req.isSatisfiedBy("1.2.3"));
@@ -443,6 +677,58 @@ public class RequirementTest {
         assertTrue(req.range.version.isEquivalentTo("1.0.0"));
     }
 
+    @Test public void simplify() {
+        assertSimplified(">=1.2.0 <2.5.0", ">=1.0.0 >=1.2.0 <3.0.0 <2.5.0");
+        assertSimplified(">=1.0.0 <2.0.0", "1.x || 1.2.x");
+        assertSimplified(">=0.0.0", "^1.2.3 || *");
+        assertSimplified(">=1.0.0 <3.0.0", "^1.0.0 || ^2.0.0");
+        assertSimplified(">=1.0.0 <3.0.0", "^2.0.0 || ^1.0.0");
+        assertSimplified(">=1.2.3 <1.4.0", "~1.2.3 || ~1.2.5 || ~1.3");
+        assertSimplified("=1.2.3", "1.2.3 || 1.2.3");
+        assertSimplified("<0.0.0-0", ">2.0.0 <1.0.0");
+        assertSimplified(">=0.0.0-0", "<2.0.0 || >=1.0.0");
+        assertEquals(">=1.0.0 <3.0.0", Requirement.buildIvy("[1.0,2.0),[1.5,3.0)").simplify().toString());
+    }
+
+    @Test public void simplify_keeps_the_pre_releases() {
+        // The pre-releases of 1.5.0 are not allowed by the group
+        assertSimplified(">=1.2.3-beta <2.0.0", ">=1.2.3-beta <2.0.0 || ^1.5.0");
+        assertSimplified("<1.0.0 || >=0.5.0 <2.0.0", "<1.0.0 || >=0.5.0 <2.0.0");
+        // A single range would allow the pre-releases above 1.2.0
+        assertSimplified(">=0.0.0 >=1.2.0", ">=1.0.0 >=1.2.0");
+        assertFalse(Requirement.buildNPM(">=1.0.0 >=1.2.0").simplify().isSatisfiedBy("1.5.0-beta"));
+
+        Requirement requirement = Requirement.buildNPM(">=1.0.0-rc.1 <1.1.0 || >=1.0.0 <1.0.5 || >=2.0.0-rc.1 <3.0.0 >=2.5.0");
+        Requirement simplified = requirement.simplify();
+        // No pre-release of 2.0.0 is above 2.5.0
+        assertEquals(">=1.0.0-rc.1 <1.1.0 || >=2.5.0 <3.0.0", simplified.toString());
+        for (String version : new String[] { "1.0.0-rc.2", "1.0.1", "1.1.0", "2.0.0-rc.1", "2.5.0-rc.1", "2.6.0" }) {
+            assertEquals(version, requirement.isSatisfiedBy(version), simplified.isSatisfiedBy(version));
+        }
+        assertTrue(simplified.isSubsetOf(requirement));
+        assertTrue(requirement.isSubsetOf(simplified));
+    }
+
+    @Test public void simplify_many_alternatives() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append(i == 0 ? "" : " || ").append('^').append(i % 10).append('.').append(i / 10).append(".0");
+        }
+        Requirement simplified = Requirement.buildNPM(sb.toString()).simplify();
+
+        assertEquals(">=0.0.0 <0.0.1 || >=0.1.0 <0.100.0 || >=1.0.0 <10.0.0", simplified.toString());
+        assertTrue(simplified.isSatisfiedBy("0.50.2"));
+        assertFalse(simplified.isSatisfiedBy("0.0.5"));
+        assertFalse(simplified.isSatisfiedBy("10.0.0"));
+    }
+
+    private static void assertSimplified(String expected, String requirement) {
+        Requirement simplified = Requirement.buildNPM(requirement).simplify();
+        assertEquals(expected, simplified.toString());
+        // Simplifying again does not change anything
+        assertEquals(expected, simplified.simplify().toString());
+    }
+
     @Test public void prettyString() {
         assertEquals(">=0.0.0", Requirement.buildNPM("latest").toString());
         assertEquals(">=0.0.0", Requirement.buildNPM("*").toString());
@@ -0,0 +1,127 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+import com.vdurmont.semver4j.SemverCache.EvictionPolicy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.vdurmont.semver4j.ConcurrentTests.assertSameInstances;
+import static com.vdurmont.semver4j.ConcurrentTests.runConcurrently;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class SemverCacheTest {
+    @Test public void get_returns_the_same_instance() {
+        SemverCache cache = new SemverCache(10);
+        Semver semver = cache.get("1.2.3", SemverType.STRICT);
+        assertEquals(new Semver("1.2.3"), semver);
+        assertSame(semver, cache.get("1.2.3", SemverType.STRICT));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test public void get_never_returns_a_version_of_another_type() {
+        SemverCache cache = new SemverCache(10);
+        Semver strict = cache.get("1.2.3", SemverType.STRICT);
+        Semver npm = cache.get("1.2.3", SemverType.NPM);
+        assertNotSame(strict, npm);
+        assertEquals(SemverType.STRICT, strict.getType());
+        assertEquals(SemverType.NPM, npm.getType());
+        assertEquals(SemverType.NPM, cache.get("1.2.3", SemverType.NPM).getType());
+    }
+
+    @Test public void get_with_an_invalid_version_is_not_cached() {
+        SemverCache cache = new SemverCache(10);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("1.2", SemverType.STRICT);
+                fail("Should have thrown a SemverException");
+            } catch (SemverException e) {
+                // Expected
+            }
+        }
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test public void least_recently_used_eviction() {
+        SemverCache cache = new SemverCache(2, EvictionPolicy.LEAST_RECENTLY_USED);
+        Semver v1 = cache.get("1.0.0", SemverType.STRICT);
+        cache.get("2.0.0", SemverType.STRICT);
+        cache.get("1.0.0", SemverType.STRICT);
+        cache.get("3.0.0", SemverType.STRICT); // Evicts 2.0.0
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(v1, cache.get("1.0.0", SemverType.STRICT));
+    }
+
+    @Test public void first_in_first_out_eviction() {
+        SemverCache cache = new SemverCache(2, EvictionPolicy.FIRST_IN_FIRST_OUT);
+        Semver v1 = cache.get("1.0.0", SemverType.STRICT);
+        Semver v2 = cache.get("2.0.0", SemverType.STRICT);
+        cache.get("1.0.0", SemverType.STRICT);
+        cache.get("3.0.0", SemverType.STRICT); // Evicts 1.0.0
+
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(v2, cache.get("2.0.0", SemverType.STRICT));
+        assertNotSame(v1, cache.get("1.0.0", SemverType.STRICT));
+    }
+
+    @Test public void capacity_is_never_exceeded() {
+        SemverCache cache = new SemverCache(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.get("1.0." + i, SemverType.STRICT);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getEvictionCount());
+
+        SemverCache big = new SemverCache(5000);
+        for (int i = 0; i < 20000; i++) {
+            big.get("1.0." + i, SemverType.LOOSE);
+        }
+        assertEquals(5000, big.size());
+        assertEquals(15000, big.getEvictionCount());
+    }
+
+    @Test public void clear_removes_the_versions() {
+        SemverCache cache = new SemverCache(10);
+        Semver semver = cache.get("1.2.3", SemverType.STRICT);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNotSame(semver, cache.get("1.2.3", SemverType.STRICT));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_with_an_invalid_capacity_fails() {
+        new SemverCache(0);
+    }
+
+    @Test public void get_from_many_threads_returns_canonical_instances() throws InterruptedException {
+        final SemverCache cache = new SemverCache(10000);
+        final int threadCount = 8;
+        final int versionCount = 2000;
+        final Semver[][] results = new Semver[threadCount][versionCount];
+        runConcurrently(threadCount, new ConcurrentTests.Task() {
+            @Override public void run(int thread) {
+                for (int i = 0; i < versionCount; i++) {
+                    SemverType type = i % 2 == 0 ? SemverType.STRICT : SemverType.NPM;
+                    results[thread][i] = cache.get("1." + (i / 2) + ".0", type);
+                }
+            }
+        });
+
+        assertSameInstances(results);
+        for (int i = 0; i < versionCount; i++) {
+            assertEquals(i % 2 == 0 ? SemverType.STRICT : SemverType.NPM, results[0][i].getType());
+        }
+        assertEquals(versionCount, cache.size());
+        assertEquals(threadCount * versionCount, cache.getHitCount() + cache.getMissCount());
+    }
+}
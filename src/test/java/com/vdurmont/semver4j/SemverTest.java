@@ -5,14 +5,23 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -23,6 +32,31 @@ public class SemverTest {
         new Semver("1.0.0+");
     }
 
+    @Test public void constructor_with_a_number_too_big_fails() {
+        try {
+            new Semver("1.2147483648.0");
+        } catch (SemverException e) {
+            assertEquals("Invalid version (no minor version): 1.2147483648.0", e.getMessage());
+            return;
+        }
+        fail("A SemverException should have been thrown");
+    }
+
+    @Test public void constructor_with_empty_build_in_suffix_fails_after_the_main_part() {
+        try {
+            new Semver("1.x.0-beta+");
+        } catch (SemverException e) {
+            assertEquals("Invalid version (no minor version): 1.x.0-beta+", e.getMessage());
+            return;
+        }
+        fail("A SemverException should have been thrown");
+    }
+
+    @Test public void npm_constructor_with_wildcards() {
+        Semver semver = new Semver("1.x.*-beta", Semver.SemverType.NPM);
+        assertIsSemver(semver, "1.x.*-beta", 1, null, null, new String[]{"beta"}, null);
+    }
+
     @Test public void default_constructor_test_full_version() {
         String version = "1.2.3-beta.11+sha.0nsfgkjkjsdf";
         Semver semver = new Semver(version);
@@ -156,6 +190,25 @@ public class SemverTest {
         assertFalse(new Semver("1.0.0-alpha.12.ab-c").isGreaterThan("1.0.0-alpha.12.ab-c"));
     }
 
+    @Test public void isGreaterThan_with_numeric_and_alphanumeric_suffixes() {
+        // Numeric identifiers always have a lower precedence than alphanumeric identifiers
+        assertTrue(new Semver("1.0.0-1a").isGreaterThan("1.0.0-2"));
+        assertTrue(new Semver("1.0.0-rc").isGreaterThan("1.0.0-99"));
+        assertFalse(new Semver("1.0.0-2").isGreaterThan("1.0.0-1a"));
+
+        // Alphanumeric identifiers are compared ignoring the case
+        assertTrue(new Semver("1.0.0-RC.1").isEquivalentTo("1.0.0-rc.1"));
+        assertTrue(new Semver("1.0.0-Beta").isLowerThan("1.0.0-rc"));
+    }
+
+    @Test public void isGreaterThan_with_large_numeric_suffixes() {
+        assertTrue(new Semver("1.0.0-nightly.20231017235959").isGreaterThan("1.0.0-nightly.20231016235959"));
+        assertTrue(new Semver("1.0.0-3000000000").isGreaterThan("1.0.0-2147483647"));
+        assertTrue(new Semver("1.0.0-100000000000000000000").isGreaterThan("1.0.0-99999999999999999999"));
+        assertTrue(new Semver("1.0.0-00100000000000000000000").isEquivalentTo("1.0.0-100000000000000000000"));
+        assertTrue(new Semver("1.0.0-99999999999999999999").isGreaterThan("1.0.0-9223372036854775807"));
+    }
+
     @Test public void isLowerThan_test() {
         // 1.0.0-alpha < 1.0.0-alpha.1 < 1.0.0-alpha.beta < 1.0.0-beta < 1.0.0-beta.2 < 1.0.0-beta.11 < 1.0.0-rc.1 < 1.0.0
 
@@ -187,6 +240,29 @@ public class SemverTest {
         assertTrue(semver.isEquivalentTo(version2));
     }
 
+    @Test public void isEquivalentTo_with_a_loose_version_and_a_build() {
+        Semver semver = new Semver("1.2+sha123", Semver.SemverType.LOOSE);
+        assertTrue(semver.isEquivalentTo("1.2+sha456"));
+        assertTrue(semver.isEquivalentTo("1.2.0"));
+        assertFalse(semver.isLowerThan("1.2.0"));
+        assertFalse(semver.isGreaterThan("1.2.0"));
+    }
+
+    @Test public void comparison_methods_are_consistent_with_compareTo() {
+        String[] versions = new String[]{"1.0.0-alpha", "1.0.0-alpha.1", "1.0.0-beta.2", "1.0.0-beta.11", "1.0.0", "1.0.0+build", "1.2.0"};
+        for (String v1 : versions) {
+            Semver semver = new Semver(v1);
+            for (String v2 : versions) {
+                int cmp = semver.compareTo(new Semver(v2));
+                assertEquals(cmp > 0, semver.isGreaterThan(v2));
+                assertEquals(cmp >= 0, semver.isGreaterThanOrEqualTo(v2));
+                assertEquals(cmp < 0, semver.isLowerThan(v2));
+                assertEquals(cmp <= 0, semver.isLowerThanOrEqualTo(v2));
+                assertEquals(cmp == 0, semver.isEquivalentTo(v2));
+            }
+        }
+    }
+
     @Test public void statisfies_calls_the_requirement() {
         Requirement req = mock(Requirement.class);
         Semver semver = new Semver("1.2.2");
@@ -276,6 +352,25 @@ public class SemverTest {
         semver.nextPatch().isEqualTo("1.2.4");
     }
 
+    @Test public void next_parts_that_are_missing_fail() {
+        String[][] cases = { { "2.3", "patch" }, { "2.3+sha", "patch" }, { "2", "minor" }, { "2", "patch" } };
+        for (String[] c : cases) {
+            Semver semver = new Semver(c[0], Semver.SemverType.LOOSE);
+            try {
+                if (c[1].equals("minor")) {
+                    semver.nextMinor();
+                } else {
+                    semver.nextPatch();
+                }
+                fail(c[0] + " has no " + c[1] + " part");
+            } catch (SemverException e) {
+                // Expected
+            }
+        }
+        assertEquals("2.4", new Semver("2.3", Semver.SemverType.LOOSE).nextMinor().getValue());
+        assertEquals("3", new Semver("2", Semver.SemverType.LOOSE).nextMajor().getValue());
+    }
+
     @Test public void toStrict_test() {
         String[][] versionGroups = new String[][]{
             new String[]{"3.0.0-beta.4+sha123456789", "3.0-beta.4+sha123456789", "3-beta.4+sha123456789"},
@@ -367,4 +462,293 @@ public class SemverTest {
         assertFalse(new Semver("0.1.2+sHa.0nSFGKjkjsdf").isStable());
         assertFalse(new Semver("0.1.2").isStable());
     }
+
+    @Test public void tryParse_with_a_valid_version() {
+        SemverParseResult result = Semver.tryParse(" 1.2.3-beta.4+sha ", Semver.SemverType.STRICT);
+        assertTrue(result.isValid());
+        assertEquals(new Semver("1.2.3-beta.4+sha"), result.getSemver());
+        assertEquals(" 1.2.3-beta.4+sha ", result.getSemver().getOriginalValue());
+        assertEquals(null, result.getErrorCode());
+        assertEquals(-1, result.getErrorPosition());
+        assertEquals(null, result.getErrorMessage());
+    }
+
+    @Test public void tryParse_with_invalid_versions() {
+        assertParseError(" a.2.3", Semver.SemverType.STRICT, SemverParseResult.ErrorCode.INVALID_MAJOR, 1);
+        assertParseError("1.2", Semver.SemverType.STRICT, SemverParseResult.ErrorCode.INVALID_PATCH, 3);
+        assertParseError("1-beta", Semver.SemverType.STRICT, SemverParseResult.ErrorCode.INVALID_MINOR, 1);
+        assertParseError("1.b.3", Semver.SemverType.LOOSE, SemverParseResult.ErrorCode.INVALID_MINOR, 2);
+        assertParseError("1.2.x", Semver.SemverType.LOOSE, SemverParseResult.ErrorCode.INVALID_PATCH, 4);
+        assertParseError("1.2.3+", Semver.SemverType.STRICT, SemverParseResult.ErrorCode.EMPTY_BUILD, 5);
+        assertParseError("1.2.3-beta+", Semver.SemverType.STRICT, SemverParseResult.ErrorCode.EMPTY_BUILD, 10);
+    }
+
+    private static void assertParseError(String value, Semver.SemverType type, SemverParseResult.ErrorCode code, int position) {
+        SemverParseResult result = Semver.tryParse(value, type);
+        assertFalse(result.isValid());
+        assertEquals(null, result.getSemver());
+        assertEquals(code, result.getErrorCode());
+        assertEquals(position, result.getErrorPosition());
+        try {
+            new Semver(value, type);
+            fail("Should have thrown a SemverException");
+        } catch (SemverException e) {
+            assertEquals(e.getMessage(), result.getErrorMessage());
+        }
+        assertFalse(Semver.isValid(value, type));
+    }
+
+    @Test public void isValid_test() {
+        assertTrue(Semver.isValid("1.2.3-beta.4+sha", Semver.SemverType.STRICT));
+        assertTrue(Semver.isValid(new StringBuilder("v1.x"), Semver.SemverType.NPM));
+        assertTrue(Semver.isValid("1", Semver.SemverType.LOOSE));
+        assertFalse(Semver.isValid("1", Semver.SemverType.STRICT));
+        assertFalse(Semver.isValid("", Semver.SemverType.LOOSE));
+        assertFalse(Semver.isValid("1.2.3+", Semver.SemverType.LOOSE));
+    }
+
+    @Test public void parse_from_a_char_sequence() {
+        Semver semver = Semver.parse(new StringBuilder(" 1.2.3-beta.11+sha "), Semver.SemverType.STRICT);
+        assertEquals(new Semver("1.2.3-beta.11+sha"), semver);
+        assertEquals("1.2.3-beta.11+sha", semver.getValue());
+        assertEquals(" 1.2.3-beta.11+sha ", semver.getOriginalValue());
+        assertArrayEquals(new String[]{"beta", "11"}, semver.getSuffixTokens());
+        assertEquals("sha", semver.getBuild());
+    }
+
+    @Test public void parse_from_slices() {
+        String buffer = "{\"a\":\"1.2.3-rc.1\",\"b\":\"v2.x\"}";
+        char[] chars = buffer.toCharArray();
+        byte[] bytes = buffer.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        direct.position(3);
+
+        Semver expected = new Semver("1.2.3-rc.1");
+        assertEquals(expected, Semver.parse(chars, 6, 10, Semver.SemverType.STRICT));
+        assertEquals(expected, Semver.parse(bytes, 6, 10, Semver.SemverType.STRICT));
+        assertEquals(expected, Semver.parse(ByteBuffer.wrap(bytes), 6, 10, Semver.SemverType.STRICT));
+        assertEquals(expected, Semver.parse(direct, 6, 10, Semver.SemverType.STRICT));
+        assertEquals("1.2.3-rc.1", Semver.parse(direct, 6, 10, Semver.SemverType.STRICT).getOriginalValue());
+        assertEquals(3, direct.position());
+
+        Semver npm = Semver.parse(bytes, 23, 4, Semver.SemverType.NPM);
+        assertEquals("2.x", npm.getValue());
+        assertEquals("v2.x", npm.getOriginalValue());
+        assertTrue(npm.isEquivalentTo(new Semver("2.x", Semver.SemverType.NPM)));
+
+        assertTrue(Semver.isValid(chars, 6, 10, Semver.SemverType.STRICT));
+        assertTrue(Semver.isValid(direct, 6, 10, Semver.SemverType.STRICT));
+        assertFalse(Semver.isValid(bytes, 5, 11, Semver.SemverType.STRICT));
+        assertFalse(Semver.isValid(bytes, 23, 4, Semver.SemverType.STRICT));
+    }
+
+    @Test(expected = SemverException.class)
+    public void parse_from_an_invalid_slice_fails() {
+        Semver.parse("x1.2.3".toCharArray(), 0, 5, Semver.SemverType.STRICT);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void parse_from_a_slice_out_of_bounds_fails() {
+        Semver.parse(new byte[4], 2, 3, Semver.SemverType.STRICT);
+    }
+
+    @Test public void create_from_parts() {
+        Semver semver = Semver.create(Semver.SemverType.STRICT, 1, 2, 3, new String[]{"beta", "11"}, "sha");
+        assertEquals(new Semver("1.2.3-beta.11+sha"), semver);
+        assertEquals("1.2.3-beta.11+sha", semver.getOriginalValue());
+        assertArrayEquals(new String[]{"beta", "11"}, semver.getSuffixTokens());
+        assertEquals("sha", semver.getBuild());
+        assertTrue(semver.isGreaterThan("1.2.3-beta.2"));
+        assertTrue(semver.isLowerThan("1.2.3-beta.a"));
+
+        Semver release = Semver.create(Semver.SemverType.LOOSE, 1, 2, null, null, null);
+        assertEquals(new Semver("1.2", Semver.SemverType.LOOSE), release);
+        assertEquals("1.2", release.getValue());
+        assertEquals(null, release.getPatch());
+        assertEquals(null, release.getBuild());
+        assertEquals(0, release.getSuffixTokens().length);
+        assertTrue(release.isStable());
+    }
+
+    @Test public void create_with_invalid_parts_fails() {
+        assertCreateFails(Semver.SemverType.STRICT, -1, 2, 3, null, null);
+        assertCreateFails(Semver.SemverType.STRICT, 1, null, null, null, null);
+        assertCreateFails(Semver.SemverType.LOOSE, 1, null, 3, null, null);
+        assertCreateFails(Semver.SemverType.STRICT, 1, 2, 3, new String[]{"beta", ""}, null);
+        assertCreateFails(Semver.SemverType.STRICT, 1, 2, 3, new String[]{"beta.1"}, null);
+        assertCreateFails(Semver.SemverType.STRICT, 1, 2, 3, null, "a+b");
+        assertCreateFails(Semver.SemverType.STRICT, 1, 2, 3, null, "");
+        assertCreateFails(Semver.SemverType.STRICT, 1, 2, 3, null, "sha ");
+    }
+
+    private static void assertCreateFails(Semver.SemverType type, int major, Integer minor, Integer patch, String[] suffixTokens, String build) {
+        try {
+            Semver.create(type, major, minor, patch, suffixTokens, build);
+            fail("Should have thrown a SemverException");
+        } catch (SemverException e) {
+            // Expected
+        }
+    }
+
+    @Test public void with_methods_keep_the_parsing_behavior() {
+        // Versions that would not be read the same way from their parts are still parsed from their value
+        assertEquals("1.2.3-a", new Semver("1.2.3").withSuffix("a.").getValue());
+        assertArrayEquals(new String[]{"a+b+c"}, new Semver("1.2.3-a+b+c").withClearedBuild().getSuffixTokens());
+        assertEquals(null, new Semver("1.2.3-a+b+c").withBuild("d").getBuild());
+        assertEquals("1.2.0", new Semver("1.2.1").withIncPatch(-1).getValue());
+        try {
+            new Semver("1.2.1").withIncPatch(-2);
+            fail("Should have thrown a SemverException");
+        } catch (SemverException e) {
+            assertEquals("Invalid version (no patch version): 1.2.-1", e.getMessage());
+        }
+    }
+
+    @Test public void toSortKey_follows_the_order_of_compareTo() {
+        String[] versions = {
+                "0.0.1", "0.1.0-alpha", "1.0.0-1", "1.0.0-2", "1.0.0-10", "1.0.0-99999999999999999999",
+                "1.0.0-alpha", "1.0.0-alpha.1", "1.0.0-alpha.beta", "1.0.0-beta", "1.0.0-beta.2", "1.0.0-beta.11",
+                "1.0.0-rc.1", "1.0.0-rc.1.0", "1.0.0-z", "1.0.0-\u00e9", "1.0.0", "1.0.1", "1.2.0", "2.0.0", "10.0.0"
+        };
+        for (int i = 0; i < versions.length; i++) {
+            for (int j = 0; j < versions.length; j++) {
+                Semver v1 = new Semver(versions[i]);
+                Semver v2 = new Semver(versions[j]);
+                assertEquals(versions[i] + " vs " + versions[j],
+                        Integer.signum(v1.compareTo(v2)), Integer.signum(compareUnsigned(v1.toSortKey(), v2.toSortKey())));
+            }
+        }
+    }
+
+    @Test public void toSortKey_ignores_what_compareTo_ignores() {
+        byte[] key = new Semver("1.2.3-beta.11").toSortKey();
+        assertArrayEquals(key, new Semver("1.2.3-BETA.011+sha").toSortKey());
+        assertArrayEquals(key, new Semver("1.2.3-beta.11", Semver.SemverType.NPM).toSortKey());
+        assertArrayEquals(new Semver("1.0.0").toSortKey(), new Semver("1", Semver.SemverType.LOOSE).toSortKey());
+    }
+
+    @Test public void fromSortKey_returns_the_canonical_version() {
+        Semver semver = Semver.fromSortKey(new Semver("1.2-BETA.011+sha", Semver.SemverType.LOOSE).toSortKey());
+        assertEquals("1.2.0-beta.11", semver.getValue());
+        assertEquals(Semver.SemverType.STRICT, semver.getType());
+        assertArrayEquals(new String[]{"beta", "11"}, semver.getSuffixTokens());
+        assertEquals(null, semver.getBuild());
+
+        Semver npm = Semver.fromSortKey(new Semver("4.17.21").toSortKey(), Semver.SemverType.NPM);
+        assertEquals(new Semver("4.17.21", Semver.SemverType.NPM), npm);
+    }
+
+    @Test(expected = SemverException.class)
+    public void fromSortKey_with_an_invalid_key_fails() {
+        byte[] key = new Semver("1.2.3-beta").toSortKey();
+        Semver.fromSortKey(Arrays.copyOf(key, key.length - 1));
+    }
+
+    private static int compareUnsigned(byte[] key1, byte[] key2) {
+        for (int i = 0; i < Math.min(key1.length, key2.length); i++) {
+            int cmp = (key1[i] & 0xFF) - (key2[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return key1.length - key2.length;
+    }
+
+    @Test public void getPackedKey_orders_the_versions() {
+        String[] versions = {"0.0.1", "1.0.0-alpha", "1.0.0-beta", "1.0.0", "1.0.1", "1.2.0-rc.1", "1.2.0", "2.0.0", "1048575.1048575.4194303"};
+        for (int i = 0; i < versions.length - 1; i++) {
+            long key1 = new Semver(versions[i]).getPackedKey();
+            long key2 = new Semver(versions[i + 1]).getPackedKey();
+            assertTrue(key1 >= 0);
+            assertTrue(versions[i] + " vs " + versions[i + 1], key1 <= key2);
+        }
+        assertEquals(new Semver("1.0.0-alpha").getPackedKey(), new Semver("1.0.0-beta").getPackedKey());
+        assertEquals(new Semver("1.0.0+a").getPackedKey(), new Semver("1.0.0+b").getPackedKey());
+    }
+
+    @Test public void getPackedKey_with_versions_that_cannot_be_packed() {
+        assertEquals(Semver.NOT_PACKABLE, new Semver("1048576.0.0").getPackedKey());
+        assertEquals(Semver.NOT_PACKABLE, new Semver("1.2.4194304").getPackedKey());
+        assertEquals(Semver.NOT_PACKABLE, new Semver("1.2", Semver.SemverType.LOOSE).getPackedKey());
+        assertEquals(Semver.NOT_PACKABLE, new Semver("1.x.3", Semver.SemverType.NPM).getPackedKey());
+
+        // Packed and not packed versions are still compared
+        assertTrue(new Semver("1048576.0.0").isGreaterThan("1048575.0.0"));
+        assertTrue(new Semver("1.2.4194304-beta").isGreaterThan("1.2.5"));
+        assertTrue(new Semver("1.2.3", Semver.SemverType.NPM).isEqualTo("1.2"));
+        assertTrue(new Semver("1.2.3", Semver.SemverType.LOOSE).isGreaterThan("1.2"));
+    }
+
+    @Test public void the_version_cache_is_disabled_by_default() {
+        assertNull(Semver.getCache());
+        assertNotSame(Semver.of("1.2.3"), Semver.of("1.2.3"));
+    }
+
+    @Test public void of_returns_cached_instances() {
+        SemverCache previous = Semver.getCache();
+        try {
+            Semver.setCache(new SemverCache(10));
+            Semver semver = Semver.of("1.2.3");
+            assertSame(semver, Semver.of("1.2.3"));
+            assertEquals(Semver.SemverType.STRICT, semver.getType());
+            assertEquals(Semver.SemverType.LOOSE, Semver.of("1.2.3", Semver.SemverType.LOOSE).getType());
+            assertEquals(1, Semver.getCache().getHitCount());
+
+            Semver.setCache(null);
+            assertNotSame(Semver.of("1.2.3"), Semver.of("1.2.3"));
+            assertEquals(semver, Semver.of("1.2.3"));
+        } finally {
+            Semver.setCache(previous);
+        }
+    }
+
+    @Test public void release_versions_are_compact() throws ReflectiveOperationException {
+        // The value is the input string and the suffix is shared, the build is extracted on demand
+        String value = "1.2.3+sha.5114f85";
+        Semver semver = new Semver(value);
+        assertSame(value, field(semver, "value"));
+        assertSame(value, field(semver, "originalValue"));
+        assertSame(SemverParser.NO_SUFFIX, field(semver, "suffix"));
+
+        // A version created from its parts only formats its value when it is requested
+        Semver next = new Semver("1.2.3").withIncPatch();
+        assertNull(field(next, "value"));
+        assertSame(SemverParser.NO_SUFFIX, field(next, "suffix"));
+        assertEquals("1.2.4", next.getValue());
+        assertSame(next.getValue(), field(next, "value"));
+    }
+
+    @Test public void pre_release_versions_are_compact() throws ReflectiveOperationException {
+        // One long per suffix identifier, the tokens are extracted on demand
+        String value = "1.2.3-rc.1+sha.5114f85";
+        Semver semver = new Semver(value);
+        assertSame(value, field(semver, "value"));
+        assertEquals(2, ((long[]) field(semver, "suffix")).length);
+
+        for (Field field : Semver.class.getDeclaredFields()) {
+            Class<?> type = field.getType();
+            assertTrue(field.getName(), Modifier.isStatic(field.getModifiers()) || type.isPrimitive()
+                    || type == String.class || type == long[].class || type == Semver.SemverType.class);
+        }
+    }
+
+    @Test public void compact_versions_keep_the_same_getters() {
+        Semver semver = new Semver("1.2.3-BETA.11+sHa.0nSFGKjkjsdf");
+        assertArrayEquals(new String[]{"BETA", "11"}, semver.getSuffixTokens());
+        assertEquals("sHa.0nSFGKjkjsdf", semver.getBuild());
+
+        Semver loose = new Semver("1", Semver.SemverType.LOOSE);
+        assertEquals(1, (int) loose.getMajor());
+        assertEquals(null, loose.getMinor());
+        assertEquals(null, loose.getPatch());
+        assertEquals(0, loose.getSuffixTokens().length);
+        assertEquals(null, loose.getBuild());
+    }
+
+    private static Object field(Semver semver, String name) throws ReflectiveOperationException {
+        Field field = Semver.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(semver);
+    }
 }
@@ -0,0 +1,146 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.vdurmont.semver4j.ConcurrentTests.runConcurrently;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class VersionPublisherTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test public void publish_notifies_the_matching_subscriptions() {
+        VersionPublisher publisher = new VersionPublisher(DIRECT);
+        RecordingListener listener1 = new RecordingListener();
+        RecordingListener listener2 = new RecordingListener();
+        RecordingListener listener3 = new RecordingListener();
+        publisher.subscribe(Requirement.buildNPM("^1.2.0"), listener1);
+        publisher.subscribe(Requirement.buildNPM(">=1.5.0 <3.0.0"), listener2);
+        publisher.subscribe(Requirement.buildIvy("[2.0,)"), listener3);
+
+        assertEquals(1, publisher.publish(Semver.of("1.3.0", SemverType.NPM)));
+        assertEquals(2, publisher.publish(Semver.of("1.6.0", SemverType.NPM)));
+        assertEquals(2, publisher.publish(Semver.of("2.1.0", SemverType.NPM)));
+        // Only the single range allows the pre-release
+        assertEquals(1, publisher.publish(Semver.of("2.1.0-beta", SemverType.NPM)));
+
+        assertEquals(Semver.of("1.3.0", SemverType.NPM), listener1.versions.get(0));
+        assertEquals(2, listener1.versions.size());
+        assertEquals(2, listener2.versions.size());
+        assertEquals(2, listener3.versions.size());
+        assertEquals(3, publisher.getSubscriptionCount());
+        assertEquals(4, publisher.getPublishCount());
+        assertEquals(6, publisher.getDispatchCount());
+        assertTrue(publisher.getMaxDispatchLatency(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(publisher.getAverageDispatchLatency(TimeUnit.NANOSECONDS)
+                <= publisher.getMaxDispatchLatency(TimeUnit.NANOSECONDS));
+    }
+
+    @Test public void cancel_stops_the_notifications() {
+        VersionPublisher publisher = new VersionPublisher(DIRECT);
+        RecordingListener listener = new RecordingListener();
+        VersionPublisher.Subscription subscription = publisher.subscribe(Requirement.buildNPM("1.x"), listener);
+        publisher.publish(Semver.of("1.0.0", SemverType.NPM));
+
+        assertTrue(subscription.cancel());
+        assertFalse(subscription.cancel());
+        assertTrue(subscription.isCancelled());
+        assertEquals(0, publisher.publish(Semver.of("1.1.0", SemverType.NPM)));
+        assertEquals(Collections.singletonList(Semver.of("1.0.0", SemverType.NPM)), listener.versions);
+        assertEquals(0, publisher.getSubscriptionCount());
+    }
+
+    @Test public void failures_and_rejections_are_counted() {
+        VersionPublisher publisher = new VersionPublisher(DIRECT);
+        publisher.subscribe(Requirement.buildNPM("*"), new VersionPublisher.Listener() {
+            @Override public void onPublish(Semver version) {
+                throw new IllegalStateException("Failure");
+            }
+        });
+        RecordingListener listener = new RecordingListener();
+        publisher.subscribe(Requirement.buildNPM("*"), listener);
+        assertEquals(2, publisher.publish(Semver.of("1.0.0", SemverType.NPM)));
+        assertEquals(1, listener.versions.size());
+        assertEquals(1, publisher.getFailureCount());
+        assertEquals(2, publisher.getDispatchCount());
+
+        VersionPublisher rejecting = new VersionPublisher(new Executor() {
+            @Override public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+        rejecting.subscribe(Requirement.buildNPM("*"), listener);
+        assertEquals(0, rejecting.publish(Semver.of("1.0.0", SemverType.NPM)));
+        assertEquals(1, rejecting.getRejectionCount());
+        assertEquals(0, rejecting.getDispatchCount());
+        assertEquals(0, rejecting.getAverageDispatchLatency(TimeUnit.NANOSECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_without_executor_fails() {
+        new VersionPublisher(null);
+    }
+
+    @Test public void publish_while_subscribing() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final VersionPublisher publisher = new VersionPublisher(executor);
+        final AtomicInteger notifications = new AtomicInteger();
+        VersionPublisher.Listener counter = new VersionPublisher.Listener() {
+            @Override public void onPublish(Semver version) {
+                notifications.incrementAndGet();
+            }
+        };
+        for (int i = 0; i < 100; i++) {
+            publisher.subscribe(Requirement.buildNPM("^1." + i + ".0"), counter);
+        }
+        final AtomicInteger dispatched = new AtomicInteger();
+        runConcurrently(2, new ConcurrentTests.Task() {
+            @Override public void run(int thread) {
+                for (int i = 0; i < 1000; i++) {
+                    publisher.subscribe(Requirement.buildNPM("^2." + i + ".0"), new RecordingListener()).cancel();
+                }
+            }
+        }, new Runnable() {
+            @Override public void run() {
+                for (int i = 0; i < 100; i++) {
+                    dispatched.addAndGet(publisher.publish(Semver.of("1." + i + ".0", SemverType.NPM)));
+                }
+            }
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // 1.i.0 satisfies ^1.0.0 to ^1.i.0
+        assertEquals(5050, dispatched.get());
+        assertEquals(5050, notifications.get());
+        assertEquals(5050, publisher.getDispatchCount());
+        assertEquals(100, publisher.getSubscriptionCount());
+    }
+
+    private static class RecordingListener implements VersionPublisher.Listener {
+        private final List<Semver> versions = Collections.synchronizedList(new ArrayList<Semver>());
+
+        @Override public void onPublish(Semver version) {
+            this.versions.add(version);
+        }
+    }
+}
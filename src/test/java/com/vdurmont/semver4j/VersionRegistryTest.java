@@ -0,0 +1,163 @@
+package com.vdurmont.semver4j;
+
+import com.vdurmont.semver4j.Semver.SemverType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.vdurmont.semver4j.ConcurrentTests.runConcurrently;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class VersionRegistryTest {
+    @Test public void versions_are_sorted_without_duplicates() {
+        VersionRegistry registry = new VersionRegistry();
+        assertTrue(registry.add("lodash", npm("1.2.0")));
+        assertEquals(3, registry.addAll("lodash", Arrays.asList(npm("2.0.0"), npm("1.10.0"), npm("1.2.0-beta"),
+                npm("2.0.0"))));
+        // Same as 1.2.0
+        assertFalse(registry.add("lodash", Semver.of("1.2", SemverType.NPM)));
+        assertFalse(registry.add("lodash", npm("1.2.0")));
+
+        VersionRegistry.PackageVersions versions = registry.getVersions("lodash");
+        assertEquals(Arrays.asList(npm("1.2.0-beta"), npm("1.2.0"), npm("1.10.0"), npm("2.0.0")),
+                versions.getVersions());
+        assertTrue(versions.contains(Semver.of("1.10", SemverType.NPM)));
+        assertFalse(versions.contains(npm("1.3.0")));
+        assertEquals(npm("2.0.0"), versions.latest());
+        assertEquals(Collections.singleton("lodash"), registry.getPackages());
+    }
+
+    @Test public void snapshots_are_not_changed_by_updates() {
+        VersionRegistry registry = new VersionRegistry();
+        registry.add("react", npm("1.0.0"));
+        VersionRegistry.PackageVersions snapshot = registry.getVersions("react");
+        registry.add("react", npm("2.0.0"));
+        assertTrue(registry.remove("react", npm("1.0.0")));
+        assertFalse(registry.remove("react", npm("1.0.0")));
+
+        assertEquals(Collections.singletonList(npm("1.0.0")), snapshot.getVersions());
+        assertEquals(Collections.singletonList(npm("2.0.0")), registry.getVersions("react").getVersions());
+
+        // A package without versions is removed
+        assertTrue(registry.remove("react", npm("2.0.0")));
+        assertTrue(registry.getPackages().isEmpty());
+        assertTrue(registry.getVersions("react").isEmpty());
+        assertNull(registry.getVersions("unknown").latest());
+    }
+
+    @Test public void queries() {
+        VersionRegistry registry = new VersionRegistry();
+        registry.addAll("express", Arrays.asList(npm("1.0.0"), npm("1.1.0"), npm("1.2.0-rc.1"), npm("1.2.0"),
+                npm("2.0.0"), npm("2.1.0-beta")));
+
+        assertEquals(npm("1.2.0"), registry.latestSatisfying("express", Requirement.buildNPM("^1.0.0")));
+        assertEquals(npm("2.1.0-beta"), registry.latestSatisfying("express", Requirement.buildNPM("*")));
+        assertNull(registry.latestSatisfying("express", Requirement.buildNPM("^3.0.0")));
+        assertNull(registry.latestSatisfying("unknown", Requirement.buildNPM("*")));
+        // A group of ranges only allows the pre-releases of its own ranges
+        assertEquals(Arrays.asList(npm("1.1.0"), npm("1.2.0")),
+                registry.allSatisfying("express", Requirement.buildNPM(">=1.1.0 <2.0.0")));
+        assertEquals(Arrays.asList(npm("1.2.0-rc.1"), npm("1.2.0")),
+                registry.allSatisfying("express", Requirement.buildNPM(">=1.2.0-rc.0 <2.0.0")));
+        assertEquals(Arrays.asList(npm("1.0.0"), npm("2.0.0")),
+                registry.allSatisfying("express", Requirement.buildNPM("1.0.x || >=2.0.0 <2.1.0")));
+
+        assertEquals(npm("2.0.0"), registry.latestStable("express"));
+        assertNull(registry.latestStable("unknown"));
+        registry.add("beta", npm("0.1.0"));
+        assertNull(registry.latestStable("beta"));
+    }
+
+    @Test public void range_views() {
+        VersionRegistry registry = new VersionRegistry();
+        registry.addAll("vue", Arrays.asList(npm("1.0.0"), npm("1.1.0"), npm("1.2.0"), npm("2.0.0")));
+
+        assertEquals(Arrays.asList(npm("1.1.0"), npm("1.2.0")),
+                registry.range("vue", npm("1.1.0"), true, npm("2.0.0"), false));
+        assertEquals(Arrays.asList(npm("1.2.0"), npm("2.0.0")),
+                registry.range("vue", npm("1.1.0"), false, npm("2.0.0"), true));
+        assertEquals(Arrays.asList(npm("1.0.0"), npm("1.1.0")),
+                registry.range("vue", null, true, Semver.of("1.1", SemverType.NPM), true));
+        assertEquals(Arrays.asList(npm("2.0.0")), registry.range("vue", npm("1.5.0"), true, null, true));
+        assertTrue(registry.range("vue", npm("1.1.0"), false, npm("1.1.0"), true).isEmpty());
+        assertTrue(registry.range("vue", npm("3.0.0"), true, npm("1.0.0"), true).isEmpty());
+        assertEquals(4, registry.range("vue", null, true, null, true).size());
+    }
+
+    @Test public void batches_of_many_packages() {
+        Map<String, List<Semver>> batch = new HashMap<String, List<Semver>>();
+        for (int p = 0; p < 10; p++) {
+            List<Semver> versions = new ArrayList<Semver>();
+            for (int i = 999; i >= 0; i--) {
+                versions.add(npm(i / 100 + "." + i % 100 + ".0"));
+            }
+            batch.put("package-" + p, versions);
+        }
+        VersionRegistry registry = new VersionRegistry();
+        assertEquals(10000, registry.addAll(batch));
+        assertEquals(0, registry.addAll(batch));
+        assertEquals(10, registry.getPackages().size());
+        assertEquals(npm("9.99.0"), registry.latestStable("package-3"));
+        assertEquals(100, registry.allSatisfying("package-3", Requirement.buildNPM("^4.0.0")).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_without_package_name() {
+        new VersionRegistry().add(null, npm("1.0.0"));
+    }
+
+    @Test public void readers_always_see_a_consistent_snapshot() throws InterruptedException {
+        final VersionRegistry registry = new VersionRegistry();
+        runConcurrently(4, new ConcurrentTests.Task() {
+            @Override public void run(int thread) {
+                for (int i = 0; i < 2000; i++) {
+                    VersionRegistry.PackageVersions snapshot = registry.getVersions("angular");
+                    List<Semver> versions = snapshot.getVersions();
+                    // The batches have 10 versions and are added whole
+                    if (versions.size() % 10 != 0) {
+                        throw new AssertionError("Partial batch: " + versions.size());
+                    }
+                    for (int j = 1; j < versions.size(); j++) {
+                        if (!versions.get(j - 1).isLowerThan(versions.get(j))) {
+                            throw new AssertionError("Not sorted: " + versions);
+                        }
+                    }
+                    Semver latest = snapshot.latestSatisfying(Requirement.buildNPM("*"));
+                    if (latest != snapshot.latest()) {
+                        throw new AssertionError(latest + " is not " + snapshot.latest());
+                    }
+                }
+            }
+        }, new Runnable() {
+            @Override public void run() {
+                for (int b = 0; b < 200; b++) {
+                    List<Semver> batch = new ArrayList<Semver>();
+                    for (int i = 0; i < 10; i++) {
+                        // Interleaved with the previous batches
+                        batch.add(npm(i + "." + b + ".0"));
+                    }
+                    registry.addAll("angular", batch);
+                }
+            }
+        });
+
+        assertEquals(2000, registry.getVersions("angular").size());
+        assertSame(registry.getVersions("angular"), registry.getVersions("angular"));
+    }
+
+    private static Semver npm(String version) {
+        return Semver.of(version, SemverType.NPM);
+    }
+}